@@ -2,6 +2,7 @@ package com.app.api;
 
 import com.app.persistence.model.Category;
 import com.app.service.OrdersService;
+import com.app.service.metrics.OrdersMetrics;
 
 import java.util.List;
 import java.util.stream.IntStream;
@@ -17,6 +18,7 @@ public class App {
                 .map(number -> "%scustomers%d.json".formatted(basePath, number))
                 .toList();
 
+        OrdersMetrics.global().registerMBean();
         OrdersService ordersService = new OrdersService(filenames);
 
         System.out.println("getCustomerWithMaxExpense");
@@ -54,6 +56,11 @@ public class App {
         System.out.println("getCategoriesAndCustomers");
         System.out.println(ordersService.getCategoriesAndCustomers());
         System.out.println();
+
+        if (OrdersMetrics.global().isEnabled()) {
+            System.out.println("metrics");
+            System.out.println(OrdersMetrics.global().dump());
+        }
     }
 
 }
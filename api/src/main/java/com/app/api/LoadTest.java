@@ -0,0 +1,70 @@
+package com.app.api;
+
+import com.app.service.metrics.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Prosty test obciążenia serwera QueryServer: clients wątków przez zadany czas
+    odpytuje po kolei podane ścieżki i zlicza czasy odpowiedzi.
+
+    java -cp app.jar com.app.api.LoadTest <adres serwera> <klienci> <sekundy> <ścieżka>...
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 4) {
+            System.err.println("Usage: LoadTest <base url> <clients> <seconds> <path>...");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        int clients = Integer.parseInt(args[1]);
+        long durationNanos = Long.parseLong(args[2]) * 1_000_000_000L;
+        List<URI> uris = Arrays.asList(args).subList(3, args.length).stream()
+                .map(path -> URI.create(baseUrl + path))
+                .toList();
+
+        HttpClient client = HttpClient.newHttpClient();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            int offset = i;
+            Thread thread = new Thread(() -> {
+                int request = offset;
+                while (System.nanoTime() - start < durationNanos) {
+                    URI uri = uris.get(request++ % uris.size());
+                    long requestStart = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                    latency.record(System.nanoTime() - requestStart);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("requests: %d, errors: %d, throughput: %.1f req/s%n", latency.getCount(), errors.sum(), latency.getCount() / seconds);
+        System.out.printf("latency us: mean %d, p50 %d, p99 %d, max %d%n",
+                (long) latency.getMean() / 1_000, latency.getPercentile(50) / 1_000, latency.getPercentile(99) / 1_000, latency.getMax() / 1_000);
+    }
+
+}
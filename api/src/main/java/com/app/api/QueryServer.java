@@ -0,0 +1,51 @@
+package com.app.api;
+
+import com.app.api.server.OrdersHttpServer;
+import com.app.service.OrdersService;
+import com.app.service.metrics.OrdersMetrics;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Uruchamia serwer HTTP z zapytaniami OrdersService nad podanymi plikami.
+
+    java -cp app.jar com.app.api.QueryServer <port> <wątki> <plik json>...
+
+    Domyślnie serwer słucha tylko na localhost; inny adres trzeba podać jawnie,
+    np. -Dorders.server.bind=0.0.0.0 - serwer nie ma uwierzytelniania.
+ */
+public class QueryServer {
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: QueryServer <port> <threads> <json file>...");
+            System.exit(1);
+        }
+        List<String> jsonFilenames = Arrays.asList(args).subList(2, args.length);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        InetAddress bindAddress = bindAddress(System.getProperty("orders.server.bind"));
+
+        OrdersMetrics.global().registerMBean();
+        OrdersService ordersService = new OrdersService(jsonFilenames, parallelism);
+        OrdersHttpServer server = new OrdersHttpServer(ordersService, bindAddress,
+                Integer.parseInt(args[0]), Integer.parseInt(args[1]), parallelism).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+
+        System.out.printf("listening on http://%s:%d%n", server.getBindAddress().getHostAddress(), server.getPort());
+    }
+
+    private static InetAddress bindAddress(String address) {
+        if (address == null) {
+            return InetAddress.getLoopbackAddress();
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown bind address %s".formatted(address));
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.app.api;
+
+import com.app.api.shard.ShardCoordinator;
+import com.app.persistence.model.Category;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Te same zapytania co App, ale nad danymi podzielonymi na shards procesów
+    ShardWorker uruchomionych lokalnie.
+
+    java -cp app.jar com.app.api.ShardedApp <liczba shardów> <katalog roboczy> <plik json>...
+ */
+public class ShardedApp {
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: ShardedApp <shards> <work directory> <json file>...");
+            System.exit(1);
+        }
+        List<String> jsonFilenames = Arrays.asList(args).subList(2, args.length);
+
+        try (ShardCoordinator coordinator = ShardCoordinator.launch(jsonFilenames, Integer.parseInt(args[0]), Path.of(args[1]))) {
+            System.out.println("getCustomerWithMaxExpense");
+            System.out.println(coordinator.getCustomersWithMaxExpense());
+            System.out.println();
+
+            System.out.println("getCustomerWithMaxExpenseOnCategory");
+            System.out.println(coordinator.getCustomerWithMaxExpenseOnCategory(Category.ODZIEZ));
+            System.out.println();
+
+            System.out.println("getCategoriesWithAveragePrices");
+            System.out.println(coordinator.getCategoriesWithAveragePrices());
+            System.out.println();
+
+            System.out.println("getCategoriesAndProductsWithMaxPrice");
+            System.out.println(coordinator.getCategoriesAndProductsWithMaxPrice());
+            System.out.println();
+
+            System.out.println("getCategoriesAndProductsWithMinPrice");
+            System.out.println(coordinator.getCategoriesAndProductsWithMinPrice());
+            System.out.println();
+
+            System.out.println("getAgesWithPopularCategories");
+            System.out.println(coordinator.getAgesWithPopularCategories());
+            System.out.println();
+
+            System.out.println("getCategoriesAndCustomers");
+            System.out.println(coordinator.getCategoriesAndCustomers());
+            System.out.println();
+
+            System.out.println("getTopCustomersByExpense");
+            System.out.println(coordinator.getTopCustomersByExpense(5));
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.app.api;
+
+import com.app.service.OrdersService;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Zamienia pliki customersN.json na binarny snapshot, który App może wczytać
+    przez OrdersService.fromSnapshot.
+
+    java -cp app.jar com.app.api.SnapshotTool <plik snapshotu> <plik json>...
+ */
+public class SnapshotTool {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: SnapshotTool <snapshot file> <json file>...");
+            System.exit(1);
+        }
+        List<String> jsonFilenames = Arrays.asList(args).subList(1, args.length);
+
+        long start = System.nanoTime();
+        OrdersService ordersService = new OrdersService(jsonFilenames, Runtime.getRuntime().availableProcessors());
+        long loaded = System.nanoTime();
+        ordersService.saveSnapshot(args[0]);
+        long saved = System.nanoTime();
+        OrdersService.fromSnapshot(args[0]);
+        long reloaded = System.nanoTime();
+
+        System.out.printf("json load: %d ms, snapshot write: %d ms, snapshot load: %d ms%n",
+                (loaded - start) / 1_000_000, (saved - loaded) / 1_000_000, (reloaded - saved) / 1_000_000);
+    }
+
+}
@@ -0,0 +1,298 @@
+package com.app.api.server;
+
+import com.app.persistence.model.Category;
+import com.app.service.CustomerDebt;
+import com.app.service.OrdersService;
+import com.app.service.exception.OrdersServiceException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+    Serwer HTTP (JDK HttpServer) z jednym długo żyjącym OrdersService. Odpowiedzi
+    są zapisywane strumieniowo (chunked) prosto z wyników zapytań.
+
+    GET  /customers/max-expense, /customers/max-expense?category=..., /ages/popular-categories,
+         /ages/most-popular-categories, /categories/average-prices, /categories/max-price-products,
+         /categories/min-price-products, /categories/customers,
+         /customers/debts[?debtorsOnly=true], /customers/debts/page?limit=..&cursor=..[&debtorsOnly=true],
+         /customers/ranking?offset=..&limit=.., /customers/top?limit=..[&category=..],
+         /customers/top-by-age?minAge=..&maxAge=..&limit=.., /stats
+    POST /reload, /append - w treści tablica JSON z nazwami plików. Reload buduje nowy
+         serwis obok starego i podmienia go dopiero po załadowaniu.
+
+    Serwer nie ma uwierzytelniania, a /reload i /append czytają dowolne pliki serwera,
+    dlatego domyślnie nasłuchuje tylko na adresie pętli zwrotnej.
+ */
+public class OrdersHttpServer implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 1_024;
+
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ServerStats stats = new ServerStats();
+    private final int parallelism;
+    private volatile OrdersService ordersService;
+
+    /*
+        Żądania obsługuje pula threads wątków z ograniczoną kolejką - gdy kolejka
+        jest pełna, żądanie wykonuje wątek przyjmujący połączenia, co spowalnia
+        przyjmowanie kolejnych zamiast zbierać je bez końca w pamięci.
+     */
+    public OrdersHttpServer(OrdersService ordersService, int port, int threads, int parallelism) {
+        this(ordersService, InetAddress.getLoopbackAddress(), port, threads, parallelism);
+    }
+
+    /*
+        Nasłuch na wskazanym adresie - np. 0.0.0.0 udostępnia serwer (bez uwierzytelniania) w sieci.
+     */
+    public OrdersHttpServer(OrdersService ordersService, InetAddress bindAddress, int port, int threads, int parallelism) {
+        if (ordersService == null) {
+            throw new OrdersServiceException("Orders service is null");
+        }
+        if (bindAddress == null) {
+            throw new OrdersServiceException("Bind address is null");
+        }
+        if (threads < 1) {
+            throw new OrdersServiceException("Threads count has to be >= 1");
+        }
+        this.ordersService = ordersService;
+        this.parallelism = parallelism;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot start server on %s:%d: %s".formatted(bindAddress.getHostAddress(), port, e.getMessage()));
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "orders-http-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+        registerEndpoints();
+    }
+
+    public OrdersHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public InetAddress getBindAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void registerEndpoints() {
+        get("/customers/max-expense", parameters -> parameters.containsKey("category")
+                ? ordersService.getCustomerWithMaxExpenseOnCategory(category(parameters))
+                : ordersService.getCustomersWithMaxExpense());
+        get("/ages/most-popular-categories", parameters -> ordersService.findMostPopularCategoryForAge());
+        get("/ages/popular-categories", parameters -> ordersService.getAgesWithPopularCategories());
+        get("/categories/average-prices", parameters -> ordersService.getCategoriesWithAveragePrices());
+        get("/categories/max-price-products", parameters -> ordersService.getCategoriesAndProductsWithMaxPrice());
+        get("/categories/min-price-products", parameters -> ordersService.getCategoriesAndProductsWithMinPrice());
+        get("/categories/customers", parameters -> ordersService.getCategoriesAndCustomers());
+        get("/customers/debts/page", parameters -> ordersService.getCustomersByDebt(
+                parameters.get("cursor"), intParameter(parameters, "limit", 100), debtorsOnly(parameters)));
+        get("/customers/ranking", parameters -> ordersService.getCustomersRankedByExpense(
+                intParameter(parameters, "offset", 0), intParameter(parameters, "limit", 10)));
+        get("/customers/top", parameters -> parameters.containsKey("category")
+                ? ordersService.getTopCustomersByExpenseOnCategory(category(parameters), intParameter(parameters, "limit", 10))
+                : ordersService.getTopCustomersByExpense(intParameter(parameters, "limit", 10)));
+        get("/customers/top-by-age", parameters -> ordersService.getTopCustomersByExpenseForAge(
+                intParameter(parameters, "minAge", 0), intParameter(parameters, "maxAge", Integer.MAX_VALUE),
+                intParameter(parameters, "limit", 10)));
+        get("/stats", parameters -> {
+            Map<String, Object> serverStats = new HashMap<>(stats.toJson());
+            serverStats.put("dataVersion", ordersService.getDataVersion());
+            return serverStats;
+        });
+        endpoint("/customers/debts", "GET", (exchange, parameters) ->
+                writeDebts(exchange, ordersService.streamCustomersAndDebts(debtorsOnly(parameters))));
+        endpoint("/reload", "POST", (exchange, parameters) -> {
+            List<String> filenames = filenames(exchange);
+            synchronized (this) {
+                ordersService = new OrdersService(filenames, parallelism);
+            }
+            writeJson(exchange, 200, Map.of("dataVersion", ordersService.getDataVersion(), "files", filenames));
+        });
+        endpoint("/append", "POST", (exchange, parameters) -> {
+            List<String> filenames = filenames(exchange);
+            synchronized (this) {
+                ordersService.append(filenames);
+            }
+            writeJson(exchange, 200, Map.of("dataVersion", ordersService.getDataVersion(), "files", filenames));
+        });
+    }
+
+    private void get(String path, Function<Map<String, String>, Object> query) {
+        endpoint(path, "GET", (exchange, parameters) -> writeJson(exchange, 200, query.apply(parameters)));
+    }
+
+    /*
+        HttpServer dopasowuje ścieżki po prefiksie, więc dokładność ścieżki i metodę
+        sprawdzamy sami. Błędy danych wejściowych dają 400, brak wyniku 404.
+     */
+    private void endpoint(String path, String method, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            stats.started();
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    failed = true;
+                    writeError(exchange, 404, "Unknown path %s".formatted(exchange.getRequestURI().getPath()));
+                } else if (!exchange.getRequestMethod().equals(method)) {
+                    failed = true;
+                    writeError(exchange, 405, "Use %s for %s".formatted(method, path));
+                } else {
+                    endpoint.handle(exchange, parameters(exchange.getRequestURI().getRawQuery()));
+                }
+            } catch (OrdersServiceException | IllegalArgumentException | JsonParseException e) {
+                failed = true;
+                writeError(exchange, 400, e.getMessage());
+            } catch (NoSuchElementException e) {
+                failed = true;
+                writeError(exchange, 404, e.getMessage());
+            } catch (RuntimeException e) {
+                failed = true;
+                writeError(exchange, 500, e.getMessage());
+            } finally {
+                exchange.close();
+                stats.finished(method + " " + path, System.nanoTime() - start, failed);
+            }
+        });
+    }
+
+    private void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        try (Writer writer = responseWriter(exchange)) {
+            gson.toJson(body, writer);
+        }
+    }
+
+    private void writeDebts(HttpExchange exchange, Stream<CustomerDebt> debts) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = gson.newJsonWriter(responseWriter(exchange))) {
+            writer.beginArray();
+            for (CustomerDebt debt : (Iterable<CustomerDebt>) debts::iterator) {
+                writer.beginObject().name("customer");
+                gson.toJson(debt.customer(), debt.customer().getClass(), writer);
+                writer.name("debt").value(debt.debt());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+    }
+
+    /*
+        Jeśli nagłówki już poszły (błąd w trakcie strumieniowania), klient dostaje
+        urwaną odpowiedź - statusu nie da się już zmienić.
+     */
+    private void writeError(HttpExchange exchange, int status, String message) {
+        try {
+            if (exchange.getResponseCode() == -1) {
+                writeJson(exchange, status, Map.of("error", String.valueOf(message)));
+            }
+        } catch (IOException e) {
+            // klient się rozłączył
+        }
+    }
+
+    private static Writer responseWriter(HttpExchange exchange) {
+        OutputStream body = exchange.getResponseBody();
+        return new OutputStreamWriter(body, StandardCharsets.UTF_8);
+    }
+
+    private List<String> filenames(HttpExchange exchange) throws IOException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            String[] filenames = gson.fromJson(reader, String[].class);
+            if (filenames == null || filenames.length == 0) {
+                throw new OrdersServiceException("Request body has to be a json array of file names");
+            }
+            return Arrays.asList(filenames);
+        }
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String parameter : rawQuery.split("&")) {
+                int separator = parameter.indexOf('=');
+                String name = separator == -1 ? parameter : parameter.substring(0, separator);
+                String value = separator == -1 ? "" : parameter.substring(separator + 1);
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static Category category(Map<String, String> parameters) {
+        return Category.valueOf(parameters.get("category").toUpperCase());
+    }
+
+    private static boolean debtorsOnly(Map<String, String> parameters) {
+        return Boolean.parseBoolean(parameters.get("debtorsOnly"));
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new OrdersServiceException("Parameter %s has to be a number: %s".formatted(name, value));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        void handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+    }
+
+}
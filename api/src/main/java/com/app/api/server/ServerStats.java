@@ -0,0 +1,71 @@
+package com.app.api.server;
+
+import com.app.service.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Czasy odpowiedzi per endpoint oraz liczba żądań obsługiwanych jednocześnie.
+ */
+public final class ServerStats {
+
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final LongAdder errors = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    void started() {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    void finished(String endpoint, long nanos, boolean failed) {
+        inFlight.decrementAndGet();
+        latencies.computeIfAbsent(endpoint, newEndpoint -> new LatencyHistogram()).record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getRequests() {
+        return latencies.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+    }
+
+    public Map<String, LatencyHistogram> getLatencies() {
+        return new TreeMap<>(latencies);
+    }
+
+    Map<String, Object> toJson() {
+        Map<String, Object> endpoints = new TreeMap<>();
+        latencies.forEach((endpoint, latency) -> endpoints.put(endpoint, Map.of(
+                "count", latency.getCount(),
+                "meanMicros", (long) latency.getMean() / 1_000,
+                "p50Micros", latency.getPercentile(50) / 1_000,
+                "p99Micros", latency.getPercentile(99) / 1_000,
+                "maxMicros", latency.getMax() / 1_000)));
+        return Map.of(
+                "uptimeSeconds", (System.nanoTime() - startNanos) / 1_000_000_000L,
+                "inFlight", getInFlight(),
+                "maxInFlight", getMaxInFlight(),
+                "requests", getRequests(),
+                "errors", getErrors(),
+                "endpoints", endpoints);
+    }
+
+}
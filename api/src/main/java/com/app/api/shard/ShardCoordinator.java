@@ -0,0 +1,416 @@
+package com.app.api.shard;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.CustomerDebt;
+import com.app.service.CustomerExpense;
+import com.app.service.OrdersQueries;
+import com.app.service.exception.OrdersServiceException;
+import com.app.service.report.OrdersReport;
+import com.app.service.report.PartialReport;
+import com.app.service.report.ReportQuery;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.app.api.shard.ShardProtocol.*;
+import static com.app.service.report.ReportQuery.*;
+
+/*
+    Zapytania OrdersQueries nad klientami rozdzielonymi między procesy ShardWorker.
+    Każde zapytanie idzie równolegle do wszystkich workerów, a częściowe wyniki są
+    scalane: maksima z wartościami, sumy i liczności zamiast średnich, sztuki
+    per wiek, rankingi z sumami wydatków. Przy remisach wygrywa worker o niższym numerze.
+ */
+public class ShardCoordinator implements OrdersQueries, AutoCloseable {
+
+    public static final Duration DEFAULT_READY_TIMEOUT = Duration.ofMinutes(10);
+
+    /*
+        Limit czekania na odpowiedź workera na jedno żądanie. Obejmuje też APPEND,
+        w którym worker ładuje nowe pliki, stąd tak samo długi jak przy starcie.
+     */
+    public static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofMinutes(10);
+
+    private final List<WorkerConnection> workers;
+    private final List<Process> processes;
+    private final ExecutorService executor;
+    private final AtomicInteger appendedBatches = new AtomicInteger();
+
+    public ShardCoordinator(List<Integer> workerPorts) {
+        this(workerPorts, DEFAULT_CALL_TIMEOUT);
+    }
+
+    public ShardCoordinator(List<Integer> workerPorts, Duration callTimeout) {
+        this(workerPorts, List.of(), callTimeout);
+    }
+
+    private ShardCoordinator(List<Integer> workerPorts, List<Process> processes, Duration callTimeout) {
+        if (workerPorts.isEmpty()) {
+            throw new OrdersServiceException("No shard workers");
+        }
+        this.processes = processes;
+        this.workers = new ArrayList<>(workerPorts.size());
+        try {
+            for (int shard = 0; shard < workerPorts.size(); shard++) {
+                workers.add(new WorkerConnection(shard, workerPorts.get(shard), callTimeout));
+            }
+        } catch (RuntimeException e) {
+            workers.forEach(WorkerConnection::close);
+            throw e;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workerPorts.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-coordinator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static ShardCoordinator launch(List<String> jsonFilenames, int shards, Path directory) {
+        return launch(jsonFilenames, shards, directory, DEFAULT_READY_TIMEOUT, DEFAULT_CALL_TIMEOUT);
+    }
+
+    /*
+        Dzieli pliki na shards części w katalogu directory i uruchamia dla każdej
+        osobny proces JVM z ShardWorker na tej samej ścieżce klas. Workery ładują
+        dane równolegle; jeśli któryś nie zgłosi gotowości w readyTimeout albo
+        zakończy się wcześniej, wszystkie są zatrzymywane.
+     */
+    public static ShardCoordinator launch(List<String> jsonFilenames, int shards, Path directory,
+                                          Duration readyTimeout, Duration callTimeout) {
+        List<String> shardFilenames = ShardPartitioner.partition(jsonFilenames, shards, directory, "shard");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>(shards);
+        List<CompletableFuture<String>> readyLines = new ArrayList<>(shards);
+        List<Integer> ports = new ArrayList<>(shards);
+        try {
+            for (String shardFilename : shardFilenames) {
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        ShardWorker.class.getName(), "0", shardFilename)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                readyLines.add(drainOutput(process, processes.size() - 1));
+            }
+            long deadline = System.nanoTime() + readyTimeout.toNanos();
+            for (int shard = 0; shard < processes.size(); shard++) {
+                ports.add(readyPort(processes.get(shard), readyLines.get(shard), shard, deadline));
+            }
+        } catch (IOException | RuntimeException e) {
+            processes.forEach(Process::destroyForcibly);
+            throw new OrdersServiceException("Cannot start shard workers: %s".formatted(e.getMessage()));
+        }
+        try {
+            return new ShardCoordinator(ports, processes, callTimeout);
+        } catch (RuntimeException e) {
+            processes.forEach(Process::destroyForcibly);
+            throw e;
+        }
+    }
+
+    /*
+        Wątek czytający stdout workera przez cały czas jego życia: pierwsza linia
+        to READY z portem, a dalsze są odrzucane, żeby pełny potok nie zablokował workera.
+     */
+    private static CompletableFuture<String> drainOutput(Process process, int shard) {
+        CompletableFuture<String> readyLine = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                readyLine.complete(output.readLine());
+                while (output.readLine() != null) {
+                    // wyjście workera po starcie nie jest potrzebne
+                }
+            } catch (IOException e) {
+                readyLine.completeExceptionally(e);
+            }
+        }, "shard-worker-output-" + shard);
+        thread.setDaemon(true);
+        thread.start();
+        return readyLine;
+    }
+
+    private static int readyPort(Process process, CompletableFuture<String> readyLine, int shard, long deadline) {
+        String line;
+        try {
+            line = readyLine.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new OrdersServiceException("Shard worker %d did not report READY in time%s".formatted(shard,
+                    process.isAlive() ? "" : " (exited with code %d)".formatted(process.exitValue())));
+        } catch (ExecutionException e) {
+            throw new OrdersServiceException("Cannot read shard worker %d output: %s".formatted(shard, e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrdersServiceException("Interrupted while waiting for shard worker %d".formatted(shard));
+        }
+        if (line == null || !line.startsWith("READY ")) {
+            throw new OrdersServiceException("Shard worker %d did not start: %s".formatted(shard, line == null
+                    ? "no output%s".formatted(process.isAlive() ? "" : ", exited with code %d".formatted(process.exitValue()))
+                    : line));
+        }
+        return Integer.parseInt(line.substring("READY ".length()).trim());
+    }
+
+    public int getShardsCount() {
+        return workers.size();
+    }
+
+    /*
+        Nowe pliki są dzielone tak samo jak przy uruchomieniu i dopisywane przez
+        każdy worker do jego shardu. Działa dla workerów na tym samym dysku.
+     */
+    public void append(List<String> jsonFilenames, Path directory) {
+        List<String> shardFilenames = ShardPartitioner.partition(jsonFilenames, workers.size(), directory,
+                "append-%d".formatted(appendedBatches.incrementAndGet()));
+        scatter(shard -> {
+            JsonObject request = request(APPEND);
+            JsonArray files = new JsonArray();
+            files.add(shardFilenames.get(shard));
+            request.add("files", files);
+            return request;
+        }, Function.identity());
+    }
+
+    @Override
+    public OrdersReport report(Set<ReportQuery> queries) {
+        OrdersReport partialReport = PartialReport
+                .merge(scatter(shard -> request(PARTIAL), result -> GSON.fromJson(result, PartialReport.class)))
+                .toReport(queries);
+        if (!queries.contains(CUSTOMERS_AND_DEBTS)) {
+            return partialReport;
+        }
+        Map<Customer, BigDecimal> debts = new HashMap<>();
+        scatter(shard -> request(DEBTS), ShardProtocol::debtsFromJson)
+                .forEach(shardDebts -> shardDebts.forEach(debt -> debts.put(debt.customer(), debt.debt())));
+        return partialReport.toBuilder().customersAndDebts(debts).build();
+    }
+
+    @Override
+    public List<Customer> getCustomersWithMaxExpense() {
+        return report(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE)).getCustomersWithMaxExpense();
+    }
+
+    @Override
+    public Customer getCustomerWithMaxExpenseOnCategory(Category category) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        return Optional.ofNullable(report(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY))
+                .getCustomersWithMaxExpenseOnCategory().get(category)).orElseThrow();
+    }
+
+    @Override
+    public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+        return report(EnumSet.of(MOST_POPULAR_CATEGORY_FOR_AGE)).getMostPopularCategoryForAge();
+    }
+
+    @Override
+    public Map<Integer, Category> getAgesWithPopularCategories() {
+        return report(EnumSet.of(AGES_WITH_POPULAR_CATEGORIES)).getAgesWithPopularCategories();
+    }
+
+    @Override
+    public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
+        return report(EnumSet.of(CATEGORIES_WITH_AVERAGE_PRICES)).getCategoriesWithAveragePrices();
+    }
+
+    @Override
+    public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
+        return report(EnumSet.of(CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE)).getCategoriesAndProductsWithMaxPrice();
+    }
+
+    @Override
+    public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
+        return report(EnumSet.of(CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE)).getCategoriesAndProductsWithMinPrice();
+    }
+
+    @Override
+    public Map<Category, Customer> getCategoriesAndCustomers() {
+        return report(EnumSet.of(CATEGORIES_AND_CUSTOMERS)).getCategoriesAndCustomers();
+    }
+
+    @Override
+    public Map<Customer, BigDecimal> getCustomersAndDebts() {
+        return report(EnumSet.of(CUSTOMERS_AND_DEBTS)).getCustomersAndDebts();
+    }
+
+    @Override
+    public List<Customer> getCustomersRankedByExpense(int offset, int limit) {
+        return topCustomers(null, Integer.MIN_VALUE, Integer.MAX_VALUE, offset, limit);
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        return topCustomers(category, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, limit);
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+        return topCustomers(null, minAge, maxAge, 0, limit);
+    }
+
+    /*
+        Każdy worker zwraca swoje offset + limit najlepszych pozycji z sumami; po
+        stabilnym sortowaniu złączonych list strona jest taka sama jak dla całości.
+     */
+    private List<Customer> topCustomers(Category category, int minAge, int maxAge, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new OrdersServiceException("Offset and limit have to be >= 0");
+        }
+        int shardLimit = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<CustomerExpense> ranking = new ArrayList<>();
+        scatter(shard -> {
+            JsonObject request = request(TOP);
+            if (category != null) {
+                request.addProperty("category", category.name());
+            }
+            request.addProperty("minAge", minAge);
+            request.addProperty("maxAge", maxAge);
+            request.addProperty("limit", shardLimit);
+            return request;
+        }, ShardProtocol::expensesFromJson).forEach(ranking::addAll);
+        ranking.sort(Comparator.comparing(CustomerExpense::expense).reversed());
+        return ranking.subList(Math.min(offset, ranking.size()), Math.min(shardLimit, ranking.size()))
+                .stream()
+                .map(CustomerExpense::customer)
+                .toList();
+    }
+
+    /*
+        Suma wersji workerów - zmienia się przy każdym dopisaniu do któregokolwiek shardu.
+     */
+    @Override
+    public long getDataVersion() {
+        return scatter(shard -> request(VERSION), JsonElement::getAsLong).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private <T> List<T> scatter(Function<Integer, JsonObject> requests, Function<JsonElement, T> results) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(workers.size());
+        for (int shard = 0; shard < workers.size(); shard++) {
+            WorkerConnection worker = workers.get(shard);
+            JsonObject request = requests.apply(shard);
+            futures.add(CompletableFuture.supplyAsync(() -> results.apply(worker.call(request)), executor));
+        }
+        List<T> gathered = new ArrayList<>(futures.size());
+        try {
+            futures.forEach(future -> gathered.add(future.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return gathered;
+    }
+
+    @Override
+    public void close() {
+        workers.forEach(WorkerConnection::close);
+        executor.shutdown();
+        processes.forEach(Process::destroy);
+    }
+
+    /*
+        Jedno stałe połączenie z workerem; żądania po nim idą po kolei. Po przekroczeniu
+        limitu czasu połączenie jest zamykane - spóźniona odpowiedź zostałaby odczytana
+        jako odpowiedź na następne żądanie.
+     */
+    private static final class WorkerConnection {
+
+        private final int shard;
+        private final int port;
+        private final Duration timeout;
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final BufferedWriter writer;
+
+        private WorkerConnection(int shard, int port, Duration timeout) {
+            this.shard = shard;
+            this.port = port;
+            this.timeout = timeout;
+            this.socket = new Socket();
+            try {
+                int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, timeout.toMillis()));
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                close();
+                throw new OrdersServiceException("Cannot connect to shard worker %d on port %d: %s".formatted(shard, port, e.getMessage()));
+            }
+        }
+
+        private synchronized JsonElement call(JsonObject request) {
+            String line;
+            try {
+                writer.write(GSON.toJson(request));
+                writer.newLine();
+                writer.flush();
+                line = reader.readLine();
+            } catch (SocketTimeoutException e) {
+                close();
+                throw new OrdersServiceException("Shard worker %d on port %d did not answer within %s".formatted(shard, port, timeout));
+            } catch (IOException e) {
+                throw new OrdersServiceException("Shard worker %d on port %d failed: %s".formatted(shard, port, e.getMessage()));
+            }
+            if (line == null) {
+                throw new OrdersServiceException("Shard worker %d on port %d closed the connection".formatted(shard, port));
+            }
+            JsonObject response = GSON.fromJson(line, JsonObject.class);
+            if (response.has("error")) {
+                String message = response.get("error").getAsString();
+                if (NO_SUCH_ELEMENT.equals(response.get("type").getAsString())) {
+                    throw new NoSuchElementException(message);
+                }
+                throw new OrdersServiceException("Shard worker %d on port %d: %s".formatted(shard, port, message));
+            }
+            return response.get("result");
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // połączenie już zamknięte
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.app.api.shard;
+
+import com.app.persistence.converter.CustomerWithProductsConverter;
+import com.app.persistence.converter.JsonStreamWriter;
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.service.exception.OrdersServiceException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Rozdziela rekordy plików wejściowych na shards plików NDJSON według skrótu
+    klienta, więc wszystkie zakupy jednego klienta trafiają do tego samego shardu.
+ */
+public final class ShardPartitioner {
+
+    private ShardPartitioner() {
+    }
+
+    public static int shardOf(CustomerWithProducts customerWithProducts, int shards) {
+        return Math.floorMod(customerWithProducts.getCustomer().hashCode(), shards);
+    }
+
+    public static List<String> partition(List<String> jsonFilenames, int shards, Path directory, String prefix) {
+        if (shards < 1) {
+            throw new OrdersServiceException("Shards count has to be >= 1");
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot create directory %s: %s".formatted(directory, e.getMessage()));
+        }
+        List<String> shardFilenames = new ArrayList<>(shards);
+        List<JsonStreamWriter<CustomerWithProducts>> writers = new ArrayList<>(shards);
+        OrdersServiceException failure = null;
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                String shardFilename = directory.resolve("%s-%d.ndjson".formatted(prefix, shard)).toString();
+                shardFilenames.add(shardFilename);
+                writers.add(new JsonStreamWriter<>(shardFilename, CustomerWithProducts.class));
+            }
+            for (String jsonFilename : jsonFilenames) {
+                new CustomerWithProductsConverter(jsonFilename).forEach(customerWithProducts ->
+                        writers.get(shardOf(customerWithProducts, shards)).write(customerWithProducts));
+            }
+        } catch (RuntimeException e) {
+            failure = new OrdersServiceException("Cannot partition %s: %s".formatted(jsonFilenames, e.getMessage()));
+        }
+        // każdy plik zamykany osobno; pierwszy błąd zostaje, kolejne są dołączane do niego
+        for (JsonStreamWriter<CustomerWithProducts> writer : writers) {
+            try {
+                writer.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = new OrdersServiceException("Cannot partition %s: %s".formatted(jsonFilenames, e.getMessage()));
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return shardFilenames;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.app.api.shard;
+
+import com.app.persistence.model.Customer;
+import com.app.service.CustomerDebt;
+import com.app.service.CustomerExpense;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Protokół koordynator - worker: jedno żądanie i jedna odpowiedź na linię, obie
+    jako obiekt JSON. Żądanie ma pole "op", odpowiedź pole "result" albo "error"
+    z typem wyjątku w "type".
+ */
+final class ShardProtocol {
+
+    static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    static final String PARTIAL = "partial";
+    static final String TOP = "top";
+    static final String DEBTS = "debts";
+    static final String VERSION = "version";
+    static final String APPEND = "append";
+
+    static final String NO_SUCH_ELEMENT = "noSuchElement";
+    static final String FAILURE = "failure";
+
+    private ShardProtocol() {
+    }
+
+    static JsonObject request(String op) {
+        JsonObject request = new JsonObject();
+        request.addProperty("op", op);
+        return request;
+    }
+
+    static JsonObject result(JsonElement result) {
+        JsonObject response = new JsonObject();
+        response.add("result", result);
+        return response;
+    }
+
+    static JsonObject error(String type, String message) {
+        JsonObject response = new JsonObject();
+        response.addProperty("type", type);
+        response.addProperty("error", message);
+        return response;
+    }
+
+    static JsonArray expensesToJson(List<CustomerExpense> expenses) {
+        JsonArray json = new JsonArray(expenses.size());
+        expenses.forEach(expense -> json.add(entry(expense.customer(), "expense", GSON.toJsonTree(expense.expense()))));
+        return json;
+    }
+
+    static List<CustomerExpense> expensesFromJson(JsonElement json) {
+        List<CustomerExpense> expenses = new ArrayList<>();
+        json.getAsJsonArray().forEach(entry -> expenses.add(new CustomerExpense(
+                GSON.fromJson(entry.getAsJsonObject().get("customer"), Customer.class),
+                entry.getAsJsonObject().get("expense").getAsBigDecimal())));
+        return expenses;
+    }
+
+    static JsonArray debtsToJson(List<CustomerDebt> debts) {
+        JsonArray json = new JsonArray(debts.size());
+        debts.forEach(debt -> json.add(entry(debt.customer(), "debt", GSON.toJsonTree(debt.debt()))));
+        return json;
+    }
+
+    static List<CustomerDebt> debtsFromJson(JsonElement json) {
+        List<CustomerDebt> debts = new ArrayList<>();
+        json.getAsJsonArray().forEach(entry -> debts.add(new CustomerDebt(
+                GSON.fromJson(entry.getAsJsonObject().get("customer"), Customer.class),
+                entry.getAsJsonObject().get("debt").getAsBigDecimal())));
+        return debts;
+    }
+
+    private static JsonObject entry(Customer customer, String name, JsonElement value) {
+        JsonObject entry = new JsonObject();
+        entry.add("customer", GSON.toJsonTree(customer));
+        entry.add(name, value);
+        return entry;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.app.api.shard;
+
+import com.app.persistence.model.Category;
+import com.app.service.CustomerDebt;
+import com.app.service.OrdersService;
+import com.app.service.exception.OrdersServiceException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static com.app.api.shard.ShardProtocol.*;
+
+/*
+    Proces workera: OrdersService nad plikami jednego shardu, odpowiadający na
+    żądania koordynatora przez gniazdo na localhost. Po załadowaniu danych wypisuje
+    na standardowe wyjście "READY <port>".
+
+    java -cp app.jar com.app.api.shard.ShardWorker <port albo 0> <plik json>...
+ */
+public class ShardWorker implements AutoCloseable {
+
+    private final OrdersService ordersService;
+    private final ServerSocket serverSocket;
+
+    public ShardWorker(OrdersService ordersService, int port) {
+        this.ordersService = ordersService;
+        try {
+            this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot listen on port %d: %s".formatted(port, e.getMessage()));
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardWorker <port> <json file>...");
+            System.exit(1);
+        }
+        OrdersService ordersService = new OrdersService(Arrays.asList(args).subList(1, args.length));
+        ShardWorker worker = new ShardWorker(ordersService, Integer.parseInt(args[0]));
+        System.out.println("READY " + worker.getPort());
+        System.out.flush();
+        worker.serve();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /*
+        Każde połączenie obsługuje osobny wątek; koordynator trzyma jedno połączenie.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> handle(socket), "shard-worker-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Cannot accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(GSON.toJson(respond(line)));
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // koordynator zamknął połączenie
+        }
+    }
+
+    private JsonObject respond(String line) {
+        try {
+            JsonObject request = GSON.fromJson(line, JsonObject.class);
+            return result(execute(request));
+        } catch (NoSuchElementException e) {
+            return error(NO_SUCH_ELEMENT, e.getMessage());
+        } catch (RuntimeException e) {
+            return error(FAILURE, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private JsonElement execute(JsonObject request) {
+        String op = request.get("op").getAsString();
+        return switch (op) {
+            case PARTIAL -> GSON.toJsonTree(ordersService.getPartialReport());
+            case TOP -> expensesToJson(ordersService.getTopExpenses(
+                    request.has("category") ? Category.valueOf(request.get("category").getAsString()) : null,
+                    request.get("minAge").getAsInt(),
+                    request.get("maxAge").getAsInt(),
+                    0,
+                    request.get("limit").getAsInt()));
+            case DEBTS -> {
+                List<CustomerDebt> debts = new ArrayList<>();
+                ordersService.forEachCustomerDebt(false, (customer, debt) -> debts.add(new CustomerDebt(customer, debt)));
+                yield debtsToJson(debts);
+            }
+            case VERSION -> new JsonPrimitive(ordersService.getDataVersion());
+            case APPEND -> {
+                List<String> filenames = new ArrayList<>();
+                request.get("files").getAsJsonArray().forEach(file -> filenames.add(file.getAsString()));
+                ordersService.append(filenames);
+                yield new JsonPrimitive(ordersService.getDataVersion());
+            }
+            default -> throw new OrdersServiceException("Unknown operation %s".formatted(op));
+        };
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // gniazdo już zamknięte
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.app.api.shard;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.service.OrdersQueries;
+import com.app.service.OrdersService;
+import com.app.service.exception.OrdersServiceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCoordinatorTest {
+
+    /*
+        Trzech klientów bez remisów w żadnym zapytaniu - wynik nie zależy od reguł
+        rozstrzygania remisów, które w wersji rozproszonej są inne (niższy worker wygrywa).
+     */
+    private static final String CUSTOMERS = """
+            [{"customer":{"name":"ANNA","surname":"A","age":20,"cash":1000},"products":[
+              {"name":"K1","category":"KSIAZKA","price":10.5},
+              {"name":"O1","category":"ODZIEZ","price":30},{"name":"O1","category":"ODZIEZ","price":30},{"name":"O1","category":"ODZIEZ","price":30},
+              {"name":"E1","category":"ELEKTRONIKA","price":1200},{"name":"E1","category":"ELEKTRONIKA","price":1200}]},
+             {"customer":{"name":"BARTEK","surname":"B","age":30,"cash":5000},"products":[
+              {"name":"K2","category":"KSIAZKA","price":11},{"name":"K2","category":"KSIAZKA","price":11},
+              {"name":"O2","category":"ODZIEZ","price":31},
+              {"name":"E2","category":"ELEKTRONIKA","price":1300},{"name":"E2","category":"ELEKTRONIKA","price":1300},{"name":"E2","category":"ELEKTRONIKA","price":1300}]}]""";
+
+    private static final String MORE_CUSTOMERS = """
+            [{"customer":{"name":"CELINA","surname":"C","age":40,"cash":200},"products":[
+              {"name":"K3","category":"KSIAZKA","price":12},{"name":"K3","category":"KSIAZKA","price":12},{"name":"K3","category":"KSIAZKA","price":12},
+              {"name":"O3","category":"ODZIEZ","price":32},{"name":"O3","category":"ODZIEZ","price":32},
+              {"name":"E3","category":"ELEKTRONIKA","price":1100}]}]""";
+
+    private static final String APPENDED_CUSTOMERS = """
+            [{"customer":{"name":"DAREK","surname":"D","age":50,"cash":100},"products":[
+              {"name":"E4","category":"ELEKTRONIKA","price":1000},{"name":"E4","category":"ELEKTRONIKA","price":1000},
+              {"name":"E4","category":"ELEKTRONIKA","price":1000},{"name":"E4","category":"ELEKTRONIKA","price":1000}]}]""";
+
+    @TempDir
+    Path directory;
+
+    /*
+        Przy 8 shardach i 3 klientach co najmniej pięć shardów jest pustych,
+        a jednoelementowe dopisanie trafia do jednego z nich.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8})
+    void shardedQueriesMatchSingleService(int shards) throws IOException {
+        List<String> files = List.of(write("customers1.json", CUSTOMERS), write("customers2.json", MORE_CUSTOMERS));
+        List<String> appendedFiles = List.of(write("appended.json", APPENDED_CUSTOMERS));
+        OrdersService ordersService = new OrdersService(files);
+        try (ShardCoordinator coordinator = ShardCoordinator.launch(files, shards, directory.resolve("shards"))) {
+            assertEquals(shards, coordinator.getShardsCount());
+            assertSameResults(ordersService, coordinator);
+            ordersService.append(appendedFiles);
+            coordinator.append(appendedFiles, directory.resolve("appended"));
+            assertSameResults(ordersService, coordinator);
+        }
+    }
+
+    /*
+        Przykładowe pliki z zasobów - przy trzech shardach część z nich jest pusta.
+     */
+    @Test
+    void launchesOnSampleFiles() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String resource : List.of("customers1.json", "customers2.json")) {
+            try (InputStream input = getClass().getClassLoader().getResourceAsStream(resource)) {
+                Path file = directory.resolve(resource);
+                Files.copy(input, file);
+                files.add(file.toString());
+            }
+        }
+        OrdersService ordersService = new OrdersService(files);
+        try (ShardCoordinator coordinator = ShardCoordinator.launch(files, 3, directory.resolve("shards"))) {
+            assertEquals(ordersService.getCustomersAndDebts(), coordinator.getCustomersAndDebts());
+            assertEquals(ordersService.getCustomersWithMaxExpense(), coordinator.getCustomersWithMaxExpense());
+            assertEquals(ordersService.getCustomersRankedByExpense(0, 10), coordinator.getCustomersRankedByExpense(0, 10));
+            for (Category category : Category.values()) {
+                assertEquals(ordersService.getTopCustomersByExpenseOnCategory(category, 3), coordinator.getTopCustomersByExpenseOnCategory(category, 3));
+            }
+            // w rankingu kategorii są tylko klienci, którzy coś w niej kupili
+            assertEquals(List.of("KOS"), surnames(ordersService.getTopCustomersByExpenseOnCategory(Category.KSIAZKA, 3)));
+            assertEquals(List.of("DESCZ", "BULKA"), surnames(ordersService.getTopCustomersByExpenseOnCategory(Category.ODZIEZ, 3)));
+        }
+    }
+
+    /*
+        Worker, który przyjmuje połączenie i nie odpowiada, nie może zablokować zapytań.
+     */
+    @Test
+    void hungWorkerFailsQueryAfterTimeout() throws IOException {
+        try (ServerSocket hungWorker = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             ShardCoordinator coordinator = new ShardCoordinator(List.of(hungWorker.getLocalPort()), Duration.ofMillis(500))) {
+            OrdersServiceException exception = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertThrows(OrdersServiceException.class, coordinator::getDataVersion));
+            assertTrue(exception.getMessage().startsWith("Shard worker 0 "), exception.getMessage());
+        }
+    }
+
+    private static void assertSameResults(OrdersQueries expected, OrdersQueries actual) {
+        assertEquals(expected.getCustomersWithMaxExpense(), actual.getCustomersWithMaxExpense());
+        for (Category category : Category.values()) {
+            assertEquals(expected.getCustomerWithMaxExpenseOnCategory(category), actual.getCustomerWithMaxExpenseOnCategory(category));
+            assertEquals(expected.getTopCustomersByExpenseOnCategory(category, 2), actual.getTopCustomersByExpenseOnCategory(category, 2));
+        }
+        assertEquals(expected.findMostPopularCategoryForAge(), actual.findMostPopularCategoryForAge());
+        assertEquals(expected.getAgesWithPopularCategories(), actual.getAgesWithPopularCategories());
+        assertEquals(expected.getCategoriesWithAveragePrices(), actual.getCategoriesWithAveragePrices());
+        assertEquals(expected.getCategoriesAndProductsWithMaxPrice(), actual.getCategoriesAndProductsWithMaxPrice());
+        assertEquals(expected.getCategoriesAndProductsWithMinPrice(), actual.getCategoriesAndProductsWithMinPrice());
+        assertEquals(expected.getCategoriesAndCustomers(), actual.getCategoriesAndCustomers());
+        assertEquals(expected.getCustomersAndDebts(), actual.getCustomersAndDebts());
+        assertEquals(expected.getCustomersRankedByExpense(0, 10), actual.getCustomersRankedByExpense(0, 10));
+        assertEquals(expected.getCustomersRankedByExpense(1, 2), actual.getCustomersRankedByExpense(1, 2));
+        assertEquals(expected.getTopCustomersByExpenseForAge(25, 45, 10), actual.getTopCustomersByExpenseForAge(25, 45, 10));
+    }
+
+    private static List<String> surnames(List<Customer> customers) {
+        return customers.stream().map(Customer::getSurname).toList();
+    }
+
+    private String write(String filename, String json) throws IOException {
+        return Files.writeString(directory.resolve(filename), json).toString();
+    }
+
+}
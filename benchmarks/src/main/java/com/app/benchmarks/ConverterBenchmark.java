@@ -0,0 +1,34 @@
+package com.app.benchmarks;
+
+import com.app.persistence.converter.CustomerWithProductsConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConverterBenchmark {
+
+    @Benchmark
+    public void fromJson(OrdersData data, Blackhole blackhole) {
+        data.filenames.forEach(filename -> blackhole.consume(new CustomerWithProductsConverter(filename)
+                .fromJson()
+                .orElseThrow()));
+    }
+
+    @Benchmark
+    public void stream(OrdersData data, Blackhole blackhole) {
+        data.filenames.forEach(filename -> new CustomerWithProductsConverter(filename).forEach(blackhole::consume));
+    }
+
+}
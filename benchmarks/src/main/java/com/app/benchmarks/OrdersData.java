@@ -0,0 +1,52 @@
+package com.app.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+    Wspólne dane dla benchmarków: pliki customersN.json generowane raz na próbę.
+    Skalę zmienia się parametrami JMH, np. -p lineItems=10000000 -p files=200.
+ */
+@State(Scope.Benchmark)
+public class OrdersData {
+
+    @Param({"10000", "1000000"})
+    public long lineItems;
+
+    @Param({"4"})
+    public int files;
+
+    public Path directory;
+    public List<String> filenames;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("orders-benchmark");
+        filenames = new OrdersDataGenerator(42L, lineItems)
+                .generate(directory, files, lineItems)
+                .stream()
+                .map(Path::toString)
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+}
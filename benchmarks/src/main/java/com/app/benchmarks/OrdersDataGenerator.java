@@ -0,0 +1,128 @@
+package com.app.benchmarks;
+
+import com.app.persistence.model.Category;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/*
+    Generuje pliki customersN.json o zadanej łącznej liczbie pozycji (produktów
+    w zakupach). Dane są losowane z ziarna, więc kolejne uruchomienia dają te same pliki.
+
+    java -cp benchmarks.jar com.app.benchmarks.OrdersDataGenerator <katalog> <liczba plików> <liczba pozycji>
+ */
+public class OrdersDataGenerator {
+
+    private static final String[] NAMES = {"JAN", "IZA", "IGOR", "DAMIAN", "MAJA", "ADAM", "EWA", "OLA", "PIOTR", "ZOSIA"};
+    private static final String[] SURNAMES = {"KOS", "DESCZ", "BULKA", "KOWALSKI", "NOWAK", "LIS", "WOJCIK", "KROL"};
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int MAX_PRODUCTS_PER_ORDER = 10;
+
+    private final SplittableRandom random;
+    private final List<GeneratedCustomer> customers;
+    private final List<GeneratedProduct> products;
+
+    public OrdersDataGenerator(long seed, long lineItems) {
+        this.random = new SplittableRandom(seed);
+        this.customers = generateCustomers((int) Math.max(100, Math.min(lineItems / 20, 5_000_000)));
+        this.products = generateProducts((int) Math.max(50, Math.min(lineItems / 1_000, 100_000)));
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: OrdersDataGenerator <directory> <files> <line items>");
+            System.exit(1);
+        }
+        List<Path> files = new OrdersDataGenerator(42L, Long.parseLong(args[2]))
+                .generate(Path.of(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        files.forEach(System.out::println);
+    }
+
+    public List<Path> generate(Path directory, int files, long lineItems) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> paths = new ArrayList<>(files);
+            for (int file = 1; file <= files; file++) {
+                long fileLineItems = lineItems / files + (file <= lineItems % files ? 1 : 0);
+                Path path = directory.resolve("customers%d.json".formatted(file));
+                writeFile(path, fileLineItems);
+                paths.add(path);
+            }
+            return paths;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeFile(Path path, long lineItems) throws IOException {
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            long written = 0;
+            while (written < lineItems) {
+                int orderSize = (int) Math.min(lineItems - written, 1 + random.nextInt(MAX_PRODUCTS_PER_ORDER));
+                writeOrder(writer, customers.get(random.nextInt(customers.size())), orderSize);
+                written += orderSize;
+            }
+            writer.endArray();
+        }
+    }
+
+    private void writeOrder(JsonWriter writer, GeneratedCustomer customer, int orderSize) throws IOException {
+        writer.beginObject();
+        writer.name("customer").beginObject()
+                .name("name").value(customer.name())
+                .name("surname").value(customer.surname())
+                .name("age").value(customer.age())
+                .name("cash").value(customer.cash())
+                .endObject();
+        writer.name("products").beginArray();
+        for (int i = 0; i < orderSize; i++) {
+            GeneratedProduct product = products.get(random.nextInt(products.size()));
+            writer.beginObject()
+                    .name("name").value(product.name())
+                    .name("price").value(product.price())
+                    .name("category").value(product.category().name())
+                    .endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private List<GeneratedCustomer> generateCustomers(int count) {
+        List<GeneratedCustomer> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generated.add(new GeneratedCustomer(
+                    NAMES[random.nextInt(NAMES.length)],
+                    SURNAMES[random.nextInt(SURNAMES.length)] + i,
+                    18 + random.nextInt(63),
+                    BigDecimal.valueOf(random.nextLong(100_000_00L), 2)));
+        }
+        return generated;
+    }
+
+    private List<GeneratedProduct> generateProducts(int count) {
+        List<GeneratedProduct> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generated.add(new GeneratedProduct(
+                    "Produkt" + i,
+                    BigDecimal.valueOf(1 + random.nextLong(5_000_00L), 2),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        }
+        return generated;
+    }
+
+    private record GeneratedCustomer(String name, String surname, int age, BigDecimal cash) {
+    }
+
+    private record GeneratedProduct(String name, BigDecimal price, Category category) {
+    }
+
+}
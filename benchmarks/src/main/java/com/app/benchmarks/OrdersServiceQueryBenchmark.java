@@ -0,0 +1,88 @@
+package com.app.benchmarks;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.OrdersService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class OrdersServiceQueryBenchmark {
+
+    @Param({"ELEKTRONIKA"})
+    public Category category;
+
+    private OrdersService ordersService;
+
+    @Setup(Level.Trial)
+    public void load(OrdersData data) {
+        ordersService = new OrdersService(data.filenames);
+    }
+
+    @Benchmark
+    public List<Customer> getCustomersWithMaxExpense() {
+        return ordersService.getCustomersWithMaxExpense();
+    }
+
+    @Benchmark
+    public Customer getCustomerWithMaxExpenseOnCategory() {
+        return ordersService.getCustomerWithMaxExpenseOnCategory(category);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+        return ordersService.findMostPopularCategoryForAge();
+    }
+
+    @Benchmark
+    public Map<Integer, Category> getAgesWithPopularCategories() {
+        return ordersService.getAgesWithPopularCategories();
+    }
+
+    @Benchmark
+    public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
+        return ordersService.getCategoriesWithAveragePrices();
+    }
+
+    @Benchmark
+    public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
+        return ordersService.getCategoriesAndProductsWithMaxPrice();
+    }
+
+    @Benchmark
+    public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
+        return ordersService.getCategoriesAndProductsWithMinPrice();
+    }
+
+    @Benchmark
+    public Map<Category, Customer> getCategoriesAndCustomers() {
+        return ordersService.getCategoriesAndCustomers();
+    }
+
+    @Benchmark
+    public Map<Customer, BigDecimal> getCustomersAndDebts() {
+        return ordersService.getCustomersAndDebts();
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.app.persistence.converter;
+
+/*
+    Zakres bajtów pliku NDJSON [from, to). Do zakresu należą linie, które
+    zaczynają się w nim, nawet jeśli kończą się za jego końcem.
+ */
+public record ByteRange(long from, long to) {
+}
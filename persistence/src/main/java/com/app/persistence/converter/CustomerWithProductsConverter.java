@@ -1,13 +1,57 @@
 package com.app.persistence.converter;
 
+import com.app.persistence.model.CustomerRegistry;
 import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
+import com.app.persistence.model.ProductCatalog;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class CustomerWithProductsConverter extends JsonConverter<List<CustomerWithProducts>> {
 
+    private final CustomerRegistry customerRegistry;
+    private final ProductCatalog productCatalog;
+
     public CustomerWithProductsConverter(String jsonFilename) {
-        super(jsonFilename);
+        this(jsonFilename, new CustomerRegistry(), new ProductCatalog());
+    }
+
+    public CustomerWithProductsConverter(String jsonFilename, CustomerRegistry customerRegistry, ProductCatalog productCatalog) {
+        this(jsonFilename, InputFormat.of(jsonFilename), customerRegistry, productCatalog);
+    }
+
+    public CustomerWithProductsConverter(String jsonFilename, InputFormat format,
+                                         CustomerRegistry customerRegistry, ProductCatalog productCatalog) {
+        super(jsonFilename, format);
+        this.customerRegistry = customerRegistry;
+        this.productCatalog = productCatalog;
+    }
+
+    public Stream<CustomerWithProducts> stream() {
+        return fromJsonElements(CustomerWithProducts.class).map(this::intern);
+    }
+
+    /*
+        Rekordy z jednego zakresu zwróconego przez split - każdy zakres może czytać inny wątek.
+     */
+    public Stream<CustomerWithProducts> stream(ByteRange range) {
+        return fromJsonElements(CustomerWithProducts.class, range).map(this::intern);
+    }
+
+    public void forEach(Consumer<CustomerWithProducts> consumer) {
+        try (Stream<CustomerWithProducts> customersWithProducts = stream()) {
+            customersWithProducts.forEach(consumer);
+        }
+    }
+
+    private CustomerWithProducts intern(CustomerWithProducts customerWithProducts) {
+        List<Product> products = customerWithProducts.getProducts();
+        return CustomerWithProducts.builder()
+                .customer(customerRegistry.intern(customerWithProducts.getCustomer()))
+                .products(products == null ? null : products.stream().map(productCatalog::intern).toList())
+                .build();
     }
 
 }
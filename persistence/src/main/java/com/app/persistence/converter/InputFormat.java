@@ -0,0 +1,52 @@
+package com.app.persistence.converter;
+
+import java.util.Locale;
+
+/*
+    Format pliku z zakupami, rozpoznawany po rozszerzeniu:
+    .json, .ndjson/.jsonl oraz te same z końcówką .gz.
+ */
+public enum InputFormat {
+
+    JSON_ARRAY(false, false),
+    NDJSON(true, false),
+    JSON_ARRAY_GZIP(false, true),
+    NDJSON_GZIP(true, true);
+
+    private final boolean lineDelimited;
+    private final boolean gzip;
+
+    InputFormat(boolean lineDelimited, boolean gzip) {
+        this.lineDelimited = lineDelimited;
+        this.gzip = gzip;
+    }
+
+    public static InputFormat of(String filename) {
+        String name = filename.toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+        boolean lineDelimited = name.endsWith(".ndjson") || name.endsWith(".jsonl");
+        if (lineDelimited) {
+            return gzip ? NDJSON_GZIP : NDJSON;
+        }
+        return gzip ? JSON_ARRAY_GZIP : JSON_ARRAY;
+    }
+
+    public boolean isLineDelimited() {
+        return lineDelimited;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /*
+        Tylko nieskompresowany NDJSON da się czytać od dowolnego bajtu.
+     */
+    public boolean isSplittable() {
+        return lineDelimited && !gzip;
+    }
+
+}
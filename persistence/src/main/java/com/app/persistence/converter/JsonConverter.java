@@ -3,41 +3,250 @@ package com.app.persistence.converter;
 import com.app.persistence.converter.exception.JsonConverterException;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class JsonConverter<T> {
 
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
     private final String jsonFilename;
+    private final InputFormat format;
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private final Type type = ((ParameterizedType) getClass().getGenericSuperclass())
             .getActualTypeArguments()[0];
 
     public JsonConverter(String jsonFilename) {
+        this(jsonFilename, InputFormat.of(jsonFilename));
+    }
+
+    public JsonConverter(String jsonFilename, InputFormat format) {
         this.jsonFilename = jsonFilename;
+        this.format = format;
+    }
+
+    public InputFormat getFormat() {
+        return format;
     }
 
     public void toJson(final T element) {
-        try (FileWriter fileWriter = new FileWriter(jsonFilename)) {
+        if (format.isLineDelimited()) {
+            throw new JsonConverterException("toJson writes a single JSON document, not %s".formatted(format));
+        }
+        try (Writer writer = openWriter()) {
             if (element == null) {
                 throw new NullPointerException("ELEMENT IS NULL");
             }
-            gson.toJson(element, fileWriter);
+            gson.toJson(element, writer);
         } catch (Exception e) {
             throw new JsonConverterException(e.getMessage());
         }
     }
 
     public Optional<T> fromJson() {
-        try (FileReader fileReader = new FileReader(jsonFilename)) {
-            return Optional.of(gson.fromJson(fileReader, type));
+        if (format.isLineDelimited()) {
+            throw new JsonConverterException("fromJson reads a single JSON document, not %s".formatted(format));
+        }
+        try (BufferedReader reader = openReader()) {
+            return Optional.of(gson.fromJson(reader, type));
+        } catch (Exception e) {
+            throw new JsonConverterException(e.getMessage());
+        }
+    }
+
+    /*
+        Dzieli nieskompresowany plik NDJSON na co najwyżej parts zakresów bajtów
+        (nie mniejszych niż minRangeBytes). Pozostałe formaty to jeden zakres.
+     */
+    public List<ByteRange> split(int parts, long minRangeBytes) {
+        long size;
+        try {
+            size = Files.size(Path.of(jsonFilename));
+        } catch (IOException e) {
+            throw new JsonConverterException(e.getMessage());
+        }
+        if (!format.isSplittable() || parts <= 1 || size <= minRangeBytes) {
+            return List.of(new ByteRange(0, Long.MAX_VALUE));
+        }
+        long rangeBytes = Math.max(minRangeBytes, (size + parts - 1) / parts);
+        List<ByteRange> ranges = new ArrayList<>();
+        for (long from = 0; from < size; from += rangeBytes) {
+            ranges.add(new ByteRange(from, Math.min(size, from + rangeBytes)));
+        }
+        return ranges;
+    }
+
+    /*
+        Czyta elementy po kolei, bez budowania całej kolekcji w pamięci - z tablicy
+        JSON albo z kolejnych linii NDJSON. Strumień trzyma otwarty plik, więc trzeba go zamknąć.
+     */
+    protected <E> Stream<E> fromJsonElements(Class<E> elementType) {
+        if (format.isSplittable()) {
+            return fromJsonElements(elementType, new ByteRange(0, Long.MAX_VALUE));
+        }
+        return format.isLineDelimited() ? fromJsonLines(elementType) : fromJsonArray(elementType);
+    }
+
+    protected <E> Stream<E> fromJsonElements(Class<E> elementType, ByteRange range) {
+        if (!format.isSplittable()) {
+            if (range.from() != 0) {
+                throw new JsonConverterException("%s cannot be read from byte %d".formatted(format, range.from()));
+            }
+            return fromJsonElements(elementType);
+        }
+        NdjsonLineReader lineReader;
+        try {
+            lineReader = new NdjsonLineReader(FileChannel.open(Path.of(jsonFilename), StandardOpenOption.READ), range, READ_BUFFER_SIZE);
         } catch (Exception e) {
             throw new JsonConverterException(e.getMessage());
         }
+        return elements(lineReader::nextLine, elementType, lineReader::close);
+    }
+
+    private <E> Stream<E> fromJsonLines(Class<E> elementType) {
+        BufferedReader reader = openReader();
+        return elements(reader::readLine, elementType, reader::close);
+    }
+
+    private <E> Stream<E> elements(LineSource lines, Class<E> elementType, IOAction close) {
+        Spliterator<E> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super E> action) {
+                try {
+                    for (String line = lines.nextLine(); line != null; line = lines.nextLine()) {
+                        if (!line.isBlank()) {
+                            action.accept(nonNull(gson.fromJson(line, elementType)));
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (IOException | JsonParseException e) {
+                    throw new JsonConverterException(e.getMessage());
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> close(close));
+    }
+
+    private <E> Stream<E> fromJsonArray(Class<E> elementType) {
+        JsonReader jsonReader = new JsonReader(openReader());
+        try {
+            jsonReader.beginArray();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            close(jsonReader::close);
+            throw new JsonConverterException(e.getMessage());
+        }
+        Spliterator<E> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean finished;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super E> action) {
+                if (finished || !hasNextElement(jsonReader)) {
+                    finished = true;
+                    return false;
+                }
+                action.accept(nextElement(jsonReader, elementType));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> close(jsonReader::close));
+    }
+
+    private BufferedReader openReader() {
+        try {
+            InputStream input = Channels.newInputStream(FileChannel.open(Path.of(jsonFilename), StandardOpenOption.READ));
+            if (format.isGzip()) {
+                input = new GZIPInputStream(input, READ_BUFFER_SIZE);
+            }
+            return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+        } catch (Exception e) {
+            throw new JsonConverterException(e.getMessage());
+        }
+    }
+
+    private Writer openWriter() throws IOException {
+        OutputStream output = Files.newOutputStream(Path.of(jsonFilename));
+        if (format.isGzip()) {
+            output = new GZIPOutputStream(output, READ_BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+    }
+
+    /*
+        Koniec tablicy wynika tylko z hasNext() - element null nie może go udawać.
+     */
+    private static boolean hasNextElement(JsonReader jsonReader) {
+        try {
+            if (jsonReader.hasNext()) {
+                return true;
+            }
+            jsonReader.endArray();
+            return false;
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonConverterException(e.getMessage());
+        }
+    }
+
+    private <E> E nextElement(JsonReader jsonReader, Class<E> elementType) {
+        try {
+            return nonNull(gson.fromJson(jsonReader, elementType));
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new JsonConverterException(e.getMessage());
+        }
+    }
+
+    private <E> E nonNull(E element) {
+        if (element == null) {
+            throw new JsonConverterException("Null element in %s".formatted(jsonFilename));
+        }
+        return element;
+    }
+
+    private static void close(IOAction close) {
+        try {
+            close.run();
+        } catch (IOException e) {
+            throw new JsonConverterException(e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineSource {
+        String nextLine() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IOAction {
+        void run() throws IOException;
     }
 
 }
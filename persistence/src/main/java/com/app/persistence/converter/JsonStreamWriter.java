@@ -0,0 +1,130 @@
+package com.app.persistence.converter;
+
+import com.app.persistence.converter.exception.JsonConverterException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+    Zapisuje elementy na bieżąco, bez budowania całej kolekcji: jako zwartą
+    tablicę JSON albo NDJSON (jeden element w linii), opcjonalnie z gzip.
+    Format wynika z rozszerzenia pliku, tak jak przy odczycie (InputFormat).
+ */
+public class JsonStreamWriter<E> implements AutoCloseable {
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final String jsonFilename;
+    private final InputFormat format;
+    private final Class<E> elementType;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final Writer writer;
+    private final JsonWriter jsonWriter;
+    private long count;
+
+    public JsonStreamWriter(String jsonFilename, Class<E> elementType) {
+        this(jsonFilename, InputFormat.of(jsonFilename), elementType);
+    }
+
+    public JsonStreamWriter(String jsonFilename, InputFormat format, Class<E> elementType) {
+        this.jsonFilename = jsonFilename;
+        this.format = format;
+        this.elementType = elementType;
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Path.of(jsonFilename),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            OutputStream output = Channels.newOutputStream(channel);
+            if (format.isGzip()) {
+                output = new GZIPOutputStream(output, WRITE_BUFFER_SIZE);
+            }
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            this.jsonWriter = gson.newJsonWriter(writer);
+            if (format.isLineDelimited()) {
+                jsonWriter.setLenient(true);
+            } else {
+                jsonWriter.beginArray();
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new JsonConverterException("Cannot open %s: %s".formatted(jsonFilename, e.getMessage()));
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // zgłaszamy pierwotny błąd otwarcia
+            }
+        }
+    }
+
+    public void write(E element) {
+        if (element == null) {
+            throw new JsonConverterException("ELEMENT IS NULL");
+        }
+        try {
+            gson.toJson(element, elementType, jsonWriter);
+            if (format.isLineDelimited()) {
+                writer.write('\n');
+            }
+            count++;
+        } catch (IOException | JsonIOException e) {
+            throw new JsonConverterException("Cannot write %s: %s".formatted(jsonFilename, e.getMessage()));
+        }
+    }
+
+    public void writeAll(Stream<? extends E> elements) {
+        elements.forEachOrdered(this::write);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /*
+        W trybie NDJSON dokument może być pusty, a JsonWriter.close() odrzuca pusty
+        dokument - dlatego zamykany jest bezpośrednio writer, zawsze, także po błędzie.
+     */
+    @Override
+    public void close() {
+        IOException failure = null;
+        try {
+            if (!format.isLineDelimited()) {
+                jsonWriter.endArray();
+            }
+            jsonWriter.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) {
+            throw new JsonConverterException("Cannot close %s: %s".formatted(jsonFilename, failure.getMessage()));
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.app.persistence.converter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+    Czyta linie NDJSON zaczynające się w zadanym zakresie bajtów. Zakres, który
+    nie zaczyna się od początku linii, pomija jej resztę - należy ona do
+    poprzedniego zakresu.
+ */
+final class NdjsonLineReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long to;
+    private final ByteBuffer buffer;
+    private long bufferStart;
+    private long position;
+    private byte[] line = new byte[1024];
+    private boolean endOfFile;
+
+    NdjsonLineReader(FileChannel channel, ByteRange range, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.to = range.to();
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.limit(0);
+        this.position = range.from();
+        this.bufferStart = range.from();
+        if (range.from() > 0) {
+            position = range.from() - 1;
+            bufferStart = position;
+            skipLine();
+        }
+    }
+
+    /*
+        Następna niepusta linia albo null po końcu zakresu.
+     */
+    String nextLine() throws IOException {
+        while (position < to && !endOfFile) {
+            int length = readLine();
+            if (!isBlank(length)) {
+                return new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void skipLine() throws IOException {
+        while (fill()) {
+            int index = (int) (position - bufferStart);
+            int newLine = indexOfNewLine(index);
+            if (newLine != -1) {
+                position = bufferStart + newLine + 1;
+                return;
+            }
+            position = bufferStart + buffer.limit();
+        }
+    }
+
+    private int readLine() throws IOException {
+        int length = 0;
+        while (fill()) {
+            int index = (int) (position - bufferStart);
+            int newLine = indexOfNewLine(index);
+            int end = newLine == -1 ? buffer.limit() : newLine;
+            length = append(length, index, end - index);
+            if (newLine != -1) {
+                position = bufferStart + newLine + 1;
+                break;
+            }
+            position = bufferStart + buffer.limit();
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return length;
+    }
+
+    private boolean fill() throws IOException {
+        if (position - bufferStart < buffer.limit()) {
+            return true;
+        }
+        buffer.clear();
+        bufferStart = position;
+        int read = channel.read(buffer, position);
+        buffer.flip();
+        if (read <= 0) {
+            endOfFile = true;
+            return false;
+        }
+        return true;
+    }
+
+    private int indexOfNewLine(int from) {
+        byte[] bytes = buffer.array();
+        for (int i = from; i < buffer.limit(); i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int append(int length, int from, int count) {
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(2 * line.length, length + count));
+        }
+        System.arraycopy(buffer.array(), from, line, length, count);
+        return length + count;
+    }
+
+    private boolean isBlank(int length) {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(line[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -1,15 +1,18 @@
 package com.app.persistence.model;
 
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 @Builder
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
 @Getter
 @ToString
-public class Customer {
+public class Customer implements Serializable {
     final String name;
     final String surname;
     final Integer age;
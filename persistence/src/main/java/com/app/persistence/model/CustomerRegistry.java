@@ -0,0 +1,4 @@
+package com.app.persistence.model;
+
+public class CustomerRegistry extends InternPool<Customer> {
+}
@@ -0,0 +1,22 @@
+package com.app.persistence.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public abstract class InternPool<T> {
+
+    private final Map<T, T> elements = new ConcurrentHashMap<>();
+
+    public T intern(T element) {
+        if (element == null) {
+            return null;
+        }
+        T canonical = elements.putIfAbsent(element, element);
+        return canonical == null ? element : canonical;
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+}
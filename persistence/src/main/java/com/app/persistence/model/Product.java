@@ -1,13 +1,16 @@
 package com.app.persistence.model;
 
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 @Builder
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
 @ToString
-public class Product {
+public class Product implements Serializable {
 
     final String name;
     final Category category;
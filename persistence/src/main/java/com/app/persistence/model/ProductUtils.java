@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.function.Function;
 
 public interface ProductUtils {
+    Function<Product, String> toName = product -> product.name;
     Function<Product, BigDecimal> toPrice = product -> product.price;
     Function<Product, Category> toCategory = product -> product.category;
 }
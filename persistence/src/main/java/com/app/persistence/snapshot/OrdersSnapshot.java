@@ -0,0 +1,31 @@
+package com.app.persistence.snapshot;
+
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/*
+    Zagregowane zakupy w postaci kolumnowej: słowniki klientów i produktów oraz
+    trzy kolumny pozycji (indeks klienta, indeks produktu, liczba sztuk).
+    Po odczycie z pliku kolumny są widokami na zmapowany plik.
+ */
+@Builder
+@Getter
+public class OrdersSnapshot {
+
+    private final List<Customer> customers;
+    private final List<Product> products;
+    private final IntBuffer customerIds;
+    private final IntBuffer productIds;
+    private final LongBuffer quantities;
+
+    public int getLineItemsCount() {
+        return customerIds.limit();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.app.persistence.snapshot;
+
+import java.nio.ByteOrder;
+
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x5A4B534E;
+    static final int VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final byte AMOUNT_NULL = 0;
+    static final byte AMOUNT_FIXED_POINT = 1;
+    static final byte AMOUNT_DECIMAL = 2;
+
+    static final int NULL_AGE = Integer.MIN_VALUE;
+    static final int NULL_STRING = -1;
+    static final byte NULL_CATEGORY = -1;
+
+    private SnapshotFormat() {
+    }
+
+}
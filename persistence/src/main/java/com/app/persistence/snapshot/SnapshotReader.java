@@ -0,0 +1,130 @@
+package com.app.persistence.snapshot;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.persistence.snapshot.exception.SnapshotException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.app.persistence.snapshot.SnapshotFormat.*;
+import static com.app.persistence.snapshot.SnapshotWriter.HEADER_SIZE;
+
+/*
+    Odczytuje snapshot przez FileChannel.map. Słowniki są dekodowane od razu,
+    a kolumny pozycji zostają widokami na zmapowany plik (bez kopiowania).
+ */
+public class SnapshotReader {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final String snapshotFilename;
+
+    public SnapshotReader(String snapshotFilename) {
+        this.snapshotFilename = snapshotFilename;
+    }
+
+    public OrdersSnapshot read() {
+        try (FileChannel channel = FileChannel.open(Path.of(snapshotFilename), StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new SnapshotException("%s is not an orders snapshot".formatted(snapshotFilename));
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new SnapshotException("Unsupported snapshot version %d".formatted(version));
+            }
+            int customersCount = header.getInt();
+            int productsCount = header.getInt();
+            int lineItemsCount = header.getInt();
+            long dictionarySize = header.getLong();
+            long columnsOffset = header.getLong();
+
+            ByteBuffer dictionary = map(channel, HEADER_SIZE, dictionarySize);
+            List<Customer> customers = new ArrayList<>(customersCount);
+            for (int i = 0; i < customersCount; i++) {
+                customers.add(readCustomer(dictionary));
+            }
+            List<Product> products = new ArrayList<>(productsCount);
+            for (int i = 0; i < productsCount; i++) {
+                products.add(readProduct(dictionary));
+            }
+
+            long idsSize = (long) lineItemsCount * Integer.BYTES;
+            return OrdersSnapshot.builder()
+                    .customers(customers)
+                    .products(products)
+                    .customerIds(map(channel, columnsOffset, idsSize).asIntBuffer())
+                    .productIds(map(channel, columnsOffset + idsSize, idsSize).asIntBuffer())
+                    .quantities(map(channel, columnsOffset + 2 * idsSize, (long) lineItemsCount * Long.BYTES).asLongBuffer())
+                    .build();
+        } catch (SnapshotException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new SnapshotException("Cannot read snapshot %s: %s".formatted(snapshotFilename, e.getMessage()));
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new SnapshotException("Snapshot section of %d bytes is too large to map".formatted(size));
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        return buffer.order(BYTE_ORDER);
+    }
+
+    private static Customer readCustomer(ByteBuffer buffer) {
+        String name = readString(buffer);
+        String surname = readString(buffer);
+        int age = buffer.getInt();
+        return Customer.builder()
+                .name(name)
+                .surname(surname)
+                .age(age == NULL_AGE ? null : age)
+                .cash(readAmount(buffer))
+                .build();
+    }
+
+    private static Product readProduct(ByteBuffer buffer) {
+        String name = readString(buffer);
+        byte category = buffer.get();
+        return Product.builder()
+                .name(name)
+                .category(category == NULL_CATEGORY ? null : CATEGORIES[category])
+                .price(readAmount(buffer))
+                .build();
+    }
+
+    private static BigDecimal readAmount(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        return switch (kind) {
+            case AMOUNT_NULL -> null;
+            case AMOUNT_FIXED_POINT -> {
+                long unscaled = buffer.getLong();
+                yield BigDecimal.valueOf(unscaled, buffer.getInt());
+            }
+            case AMOUNT_DECIMAL -> new BigDecimal(readString(buffer));
+            default -> throw new SnapshotException("Unknown amount encoding %d".formatted(kind));
+        };
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.app.persistence.snapshot;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.persistence.snapshot.exception.SnapshotException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.app.persistence.model.ProductUtils.toCategory;
+import static com.app.persistence.model.ProductUtils.toName;
+import static com.app.persistence.model.ProductUtils.toPrice;
+import static com.app.persistence.snapshot.SnapshotFormat.*;
+
+public class SnapshotWriter {
+
+    static final int HEADER_SIZE = 5 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final String snapshotFilename;
+
+    public SnapshotWriter(String snapshotFilename) {
+        this.snapshotFilename = snapshotFilename;
+    }
+
+    public void write(OrdersSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new SnapshotException("Snapshot is null");
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(snapshotFilename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output output = new Output(channel, HEADER_SIZE);
+            snapshot.getCustomers().forEach(output::writeCustomer);
+            snapshot.getProducts().forEach(output::writeProduct);
+            long dictionarySize = output.position - HEADER_SIZE;
+            output.padTo(Long.BYTES);
+            long columnsOffset = output.position;
+            output.writeInts(snapshot.getCustomerIds());
+            output.writeInts(snapshot.getProductIds());
+            output.writeLongs(snapshot.getQuantities());
+            output.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(snapshot.getCustomers().size())
+                    .putInt(snapshot.getProducts().size())
+                    .putInt(snapshot.getLineItemsCount())
+                    .putLong(dictionarySize)
+                    .putLong(columnsOffset)
+                    .flip();
+            channel.write(header, 0);
+        } catch (IOException e) {
+            throw new SnapshotException("Cannot write snapshot %s: %s".formatted(snapshotFilename, e.getMessage()));
+        }
+    }
+
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+        private long position;
+
+        private Output(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            this.position = position;
+            channel.position(position);
+        }
+
+        private void writeCustomer(Customer customer) {
+            writeString(customer.getName());
+            writeString(customer.getSurname());
+            ensure(Integer.BYTES);
+            buffer.putInt(customer.getAge() == null ? NULL_AGE : customer.getAge());
+            position += Integer.BYTES;
+            writeAmount(customer.getCash());
+        }
+
+        private void writeProduct(Product product) {
+            writeString(toName.apply(product));
+            Category category = toCategory.apply(product);
+            ensure(1);
+            buffer.put(category == null ? NULL_CATEGORY : (byte) category.ordinal());
+            position += 1;
+            writeAmount(toPrice.apply(product));
+        }
+
+        private void writeAmount(BigDecimal amount) {
+            ensure(1 + Long.BYTES + Integer.BYTES);
+            if (amount == null) {
+                buffer.put(AMOUNT_NULL);
+                position += 1;
+            } else if (amount.scale() >= 0 && amount.unscaledValue().bitLength() < Long.SIZE) {
+                buffer.put(AMOUNT_FIXED_POINT).putLong(amount.unscaledValue().longValue()).putInt(amount.scale());
+                position += 1 + Long.BYTES + Integer.BYTES;
+            } else {
+                buffer.put(AMOUNT_DECIMAL);
+                position += 1;
+                writeString(amount.toString());
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                ensure(Integer.BYTES);
+                buffer.putInt(NULL_STRING);
+                position += Integer.BYTES;
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES);
+            buffer.putInt(bytes.length);
+            position += Integer.BYTES;
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+                position += length;
+            }
+        }
+
+        private void padTo(int alignment) {
+            while (position % alignment != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        private void writeInts(IntBuffer values) {
+            IntBuffer source = values.duplicate().rewind();
+            while (source.hasRemaining()) {
+                ensure(Integer.BYTES);
+                int length = Math.min(buffer.remaining() / Integer.BYTES, source.remaining());
+                IntBuffer target = buffer.asIntBuffer();
+                target.put(source.slice().limit(length));
+                source.position(source.position() + length);
+                buffer.position(buffer.position() + length * Integer.BYTES);
+                position += (long) length * Integer.BYTES;
+            }
+        }
+
+        private void writeLongs(LongBuffer values) {
+            LongBuffer source = values.duplicate().rewind();
+            while (source.hasRemaining()) {
+                ensure(Long.BYTES);
+                int length = Math.min(buffer.remaining() / Long.BYTES, source.remaining());
+                LongBuffer target = buffer.asLongBuffer();
+                target.put(source.slice().limit(length));
+                source.position(source.position() + length);
+                buffer.position(buffer.position() + length * Long.BYTES);
+                position += (long) length * Long.BYTES;
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            } catch (IOException e) {
+                throw new SnapshotException(e.getMessage());
+            }
+        }
+    }
+
+}
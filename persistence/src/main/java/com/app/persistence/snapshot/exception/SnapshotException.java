@@ -0,0 +1,7 @@
+package com.app.persistence.snapshot.exception;
+
+public class SnapshotException extends RuntimeException {
+    public SnapshotException(String message) {
+        super(message);
+    }
+}
@@ -3,36 +3,35 @@ package com.app.persistence.validator;
 import com.app.persistence.model.Customer;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.Map;
 
-public class CustomerValidator implements Validator<Customer> {
-
-    private final Map<String, String> errors;
+import static com.app.persistence.validator.Validator.addError;
+import static com.app.persistence.validator.Validator.noErrors;
 
-    public CustomerValidator() {
-        this.errors = new HashMap<>();
-    }
+public class CustomerValidator implements Validator<Customer> {
 
     @Override
     public Map<String, String> validate(Customer customer) {
         if (customer == null) {
-            errors.put("customer", "object is null");
-            return errors;
+            return addError(noErrors(), "customer", "object is null");
         }
-        if (customer.getAge() < 18) {
-            errors.put("age", "has to be >= 18");
+        Map<String, String> errors = noErrors();
+        if (customer.getAge() == null) {
+            errors = addError(errors, "age", "object is null");
+        } else if (customer.getAge() < 18) {
+            errors = addError(errors, "age", "has to be >= 18");
         }
-        validateCash(customer.getCash());
-        return errors;
+        return validateCash(customer.getCash(), errors);
     }
 
-    private void validateCash(BigDecimal cash) {
+    private Map<String, String> validateCash(BigDecimal cash, Map<String, String> errors) {
         if (cash == null) {
-            errors.put("cash", "object is null");
-        } else if (cash.compareTo(BigDecimal.ZERO) < 0) {
-            errors.put("cash", "has to be >= 0");
+            return addError(errors, "cash", "object is null");
+        }
+        if (cash.signum() < 0) {
+            return addError(errors, "cash", "has to be >= 0");
         }
+        return errors;
     }
 
 }
@@ -1,28 +1,46 @@
 package com.app.persistence.validator;
 
 import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-public class CustomerWithProductsValidator implements Validator<CustomerWithProducts> {
+import static com.app.persistence.validator.Validator.addError;
+import static com.app.persistence.validator.Validator.noErrors;
 
-    private final Map<String, String> errors;
+/*
+    Klucze błędów mają postać reguła.pole (np. customer.age, product.price),
+    więc błędy tego samego rodzaju z różnych produktów liczą się jako jeden.
+ */
+public class CustomerWithProductsValidator implements Validator<CustomerWithProducts> {
 
-    public CustomerWithProductsValidator() {
-        this.errors = new HashMap<>();
-    }
+    private final CustomerValidator customerValidator = new CustomerValidator();
+    private final ProductValidator productValidator = new ProductValidator();
 
     @Override
     public Map<String, String> validate(CustomerWithProducts customerWithProducts) {
         if (customerWithProducts == null) {
-            errors.put("customerWithProducts", "object is null");
-            return errors;
+            return addError(noErrors(), "customerWithProducts", "object is null");
+        }
+        Map<String, String> errors = noErrors();
+        for (Map.Entry<String, String> error : customerValidator.validate(customerWithProducts.getCustomer()).entrySet()) {
+            errors = addError(errors, prefixed("customer", error.getKey()), error.getValue());
+        }
+        List<Product> products = customerWithProducts.getProducts();
+        if (products == null) {
+            return addError(errors, "products", "object is null");
+        }
+        for (Product product : products) {
+            for (Map.Entry<String, String> error : productValidator.validate(product).entrySet()) {
+                errors = addError(errors, prefixed("product", error.getKey()), error.getValue());
+            }
         }
-        errors.putAll(new CustomerValidator().validate(customerWithProducts.getCustomer()));
-        ProductValidator productValidator = new ProductValidator();
-        customerWithProducts.getProducts().forEach(product -> errors.putAll(productValidator.validate(product)));
         return errors;
     }
 
+    private static String prefixed(String rule, String field) {
+        return rule.equals(field) ? field : rule + "." + field;
+    }
+
 }
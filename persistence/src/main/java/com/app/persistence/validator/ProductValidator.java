@@ -3,35 +3,35 @@ package com.app.persistence.validator;
 import com.app.persistence.model.Product;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.Map;
 
+import static com.app.persistence.model.ProductUtils.toCategory;
 import static com.app.persistence.model.ProductUtils.toPrice;
+import static com.app.persistence.validator.Validator.addError;
+import static com.app.persistence.validator.Validator.noErrors;
 
 public class ProductValidator implements Validator<Product> {
 
-    private final Map<String, String> errors;
-
-    public ProductValidator() {
-        this.errors = new HashMap<>();
-    }
-
     @Override
     public Map<String, String> validate(Product product) {
         if (product == null) {
-            errors.put("product", "object is null");
-            return errors;
+            return addError(noErrors(), "product", "object is null");
+        }
+        Map<String, String> errors = validatePrice(toPrice.apply(product));
+        if (toCategory.apply(product) == null) {
+            errors = addError(errors, "category", "object is null");
         }
-        validatePrice(toPrice.apply(product));
         return errors;
     }
 
-    private void validatePrice(BigDecimal price) {
+    private Map<String, String> validatePrice(BigDecimal price) {
         if (price == null) {
-            errors.put("price", "object is null");
-        } else if (price.compareTo(BigDecimal.ZERO) < 0) {
-            errors.put("price", "has to be >= 0");
+            return addError(noErrors(), "price", "object is null");
+        }
+        if (price.signum() < 0) {
+            return addError(noErrors(), "price", "has to be >= 0");
         }
+        return noErrors();
     }
 
 }
@@ -0,0 +1,19 @@
+package com.app.persistence.validator;
+
+import com.app.persistence.model.CustomerWithProducts;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+@Builder
+@Getter
+@ToString
+public class ValidationIssue {
+
+    private final String source;
+    private final CustomerWithProducts customerWithProducts;
+    private final Map<String, String> errors;
+
+}
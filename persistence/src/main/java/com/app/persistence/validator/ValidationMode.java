@@ -0,0 +1,10 @@
+package com.app.persistence.validator;
+
+/*
+    FAIL_FAST - pierwszy błędny rekord przerywa ładowanie.
+    REPORT - błędne rekordy są pomijane i zbierane w raporcie.
+    QUARANTINE - błędne rekordy są pomijane i dopisywane do pliku NDJSON.
+ */
+public enum ValidationMode {
+    FAIL_FAST, REPORT, QUARANTINE
+}
@@ -0,0 +1,191 @@
+package com.app.persistence.validator;
+
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.validator.exception.ValidatorException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Walidacja rekordów przed agregacją, bezpieczna dla wielu wątków ładujących
+    naraz. Poprawny rekord nie powoduje żadnej alokacji; liczniki błędów są
+    prowadzone osobno dla każdej reguły (klucza błędu).
+
+    W trybie REPORT pamiętamy najwyżej maxIssues błędnych rekordów - dalsze są tylko
+    liczone (getDroppedIssuesCount), żeby jeden zły plik nie zajął całej sterty.
+ */
+public class ValidationStage implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_ISSUES = 1_000;
+
+    private final ValidationMode mode;
+    private final Path quarantineFile;
+    private final int maxIssues;
+    private final CustomerWithProductsValidator validator = new CustomerWithProductsValidator();
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final LongAdder validatedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final Queue<ValidationIssue> issues = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retainedIssues = new AtomicInteger();
+    private final LongAdder droppedIssues = new LongAdder();
+
+    private Writer quarantineWriter;
+
+    private ValidationStage(ValidationMode mode, Path quarantineFile, int maxIssues) {
+        this.mode = mode;
+        this.quarantineFile = quarantineFile;
+        this.maxIssues = maxIssues;
+    }
+
+    public static ValidationStage failFast() {
+        return new ValidationStage(ValidationMode.FAIL_FAST, null, 0);
+    }
+
+    public static ValidationStage report() {
+        return report(DEFAULT_MAX_ISSUES);
+    }
+
+    public static ValidationStage report(int maxIssues) {
+        if (maxIssues < 0) {
+            throw new ValidatorException("Max issues count has to be >= 0");
+        }
+        return new ValidationStage(ValidationMode.REPORT, null, maxIssues);
+    }
+
+    public static ValidationStage quarantine(Path quarantineFile) {
+        if (quarantineFile == null) {
+            throw new ValidatorException("Quarantine file is null");
+        }
+        return new ValidationStage(ValidationMode.QUARANTINE, quarantineFile, 0);
+    }
+
+    /*
+        Zwraca true, jeśli rekord można agregować. W trybie FAIL_FAST błędny
+        rekord kończy się ValidatorException.
+     */
+    public boolean accept(String source, CustomerWithProducts customerWithProducts) {
+        validatedCount.increment();
+        Map<String, String> errors = validator.validate(customerWithProducts);
+        if (errors.isEmpty()) {
+            return true;
+        }
+        rejectedCount.increment();
+        errors.keySet().forEach(rule -> errorCounts.computeIfAbsent(rule, key -> new LongAdder()).increment());
+        switch (mode) {
+            case FAIL_FAST -> throw new ValidatorException(Validator.joinErrors(errors));
+            case REPORT -> report(source, customerWithProducts, errors);
+            case QUARANTINE -> quarantine(source, customerWithProducts, errors);
+        }
+        return false;
+    }
+
+    private void report(String source, CustomerWithProducts customerWithProducts, Map<String, String> errors) {
+        if (retainedIssues.get() >= maxIssues || retainedIssues.incrementAndGet() > maxIssues) {
+            droppedIssues.increment();
+            return;
+        }
+        issues.add(ValidationIssue.builder()
+                .source(source)
+                .customerWithProducts(customerWithProducts)
+                .errors(errors)
+                .build());
+    }
+
+    private synchronized void quarantine(String source, CustomerWithProducts customerWithProducts, Map<String, String> errors) {
+        JsonObject line = new JsonObject();
+        line.addProperty("source", source);
+        line.add("errors", gson.toJsonTree(errors));
+        line.add("record", gson.toJsonTree(customerWithProducts));
+        try {
+            if (quarantineWriter == null) {
+                quarantineWriter = Files.newBufferedWriter(quarantineFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            quarantineWriter.write(gson.toJson(line));
+            quarantineWriter.write('\n');
+        } catch (IOException e) {
+            throw new ValidatorException("Cannot write quarantine file %s: %s".formatted(quarantineFile, e.getMessage()));
+        }
+    }
+
+    public ValidationMode getMode() {
+        return mode;
+    }
+
+    public long getValidatedCount() {
+        return validatedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorCounts.forEach((rule, count) -> counts.put(rule, count.sum()));
+        return counts;
+    }
+
+    public List<ValidationIssue> getIssues() {
+        return new ArrayList<>(issues);
+    }
+
+    /*
+        Błędne rekordy z trybu REPORT, które nie zmieściły się w limicie maxIssues.
+     */
+    public long getDroppedIssuesCount() {
+        return droppedIssues.sum();
+    }
+
+    /*
+        Zapisuje na dysk dotychczas odrzucone rekordy, nie zamykając pliku kwarantanny -
+        dla etapu współdzielonego przez kolejne dopisywania danych.
+     */
+    public synchronized void flush() {
+        if (quarantineWriter == null) {
+            return;
+        }
+        try {
+            quarantineWriter.flush();
+        } catch (IOException e) {
+            throw new ValidatorException("Cannot write quarantine file %s: %s".formatted(quarantineFile, e.getMessage()));
+        }
+    }
+
+    /*
+        Zamyka plik kwarantanny po zakończonym ładowaniu; kolejny błędny rekord
+        otworzy go ponownie w trybie dopisywania.
+     */
+    @Override
+    public synchronized void close() {
+        if (quarantineWriter == null) {
+            return;
+        }
+        try {
+            quarantineWriter.close();
+        } catch (IOException e) {
+            throw new ValidatorException("Cannot close quarantine file %s: %s".formatted(quarantineFile, e.getMessage()));
+        } finally {
+            quarantineWriter = null;
+        }
+    }
+
+}
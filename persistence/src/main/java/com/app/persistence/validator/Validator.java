@@ -2,6 +2,8 @@ package com.app.persistence.validator;
 
 import com.app.persistence.validator.exception.ValidatorException;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -16,7 +18,21 @@ public interface Validator<T> {
         }
     }
 
-    private static String joinErrors(Map<String, String> errors) {
+    /*
+        Walidatory są bezstanowe: poprawny obiekt daje Collections.emptyMap(),
+        a mapa błędów powstaje dopiero przy pierwszym błędzie.
+     */
+    static Map<String, String> addError(Map<String, String> errors, String field, String message) {
+        Map<String, String> allErrors = errors.isEmpty() ? new LinkedHashMap<>() : errors;
+        allErrors.put(field, message);
+        return allErrors;
+    }
+
+    static Map<String, String> noErrors() {
+        return Collections.emptyMap();
+    }
+
+    static String joinErrors(Map<String, String> errors) {
         return errors.entrySet()
                 .stream()
                 .map(e -> e.getKey() + ": " + e.getValue())
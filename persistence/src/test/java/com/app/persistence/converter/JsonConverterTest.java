@@ -0,0 +1,67 @@
+package com.app.persistence.converter;
+
+import com.app.persistence.converter.exception.JsonConverterException;
+import com.app.persistence.model.CustomerWithProducts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonConverterTest {
+
+    private static final String RECORD = """
+            {"customer":{"name":"JAN","surname":"KOS","age":18,"cash":2000},"products":[{"name":"P","category":"KSIAZKA","price":10}]}""";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsAllArrayElements() throws IOException {
+        assertEquals(3, count(write("customers.json", "[%s,%s,%s]".formatted(RECORD, RECORD, RECORD))));
+    }
+
+    /*
+        Element null w środku tablicy nie może kończyć strumienia i gubić dalszych rekordów.
+     */
+    @Test
+    void rejectsNullArrayElement() throws IOException {
+        String filename = write("customers.json", "[%s,null,%s]".formatted(RECORD, RECORD));
+        assertThrows(JsonConverterException.class, () -> count(filename));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"customers.ndjson", "customers.ndjson.gz"})
+    void rejectsNullLine(String filename) throws IOException {
+        String path = write(filename, "%s\nnull\n%s\n".formatted(RECORD, RECORD));
+        assertThrows(JsonConverterException.class, () -> count(path));
+    }
+
+    private static long count(String filename) {
+        try (Stream<CustomerWithProducts> customersWithProducts = new CustomerWithProductsConverter(filename).stream()) {
+            return customersWithProducts.count();
+        }
+    }
+
+    private String write(String filename, String json) throws IOException {
+        Path file = directory.resolve(filename);
+        if (!filename.endsWith(".gz")) {
+            return Files.writeString(file, json).toString();
+        }
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file))) {
+            output.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return file.toString();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.app.persistence.converter;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonStreamWriterTest {
+
+    private static final int RECORDS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"empty.json", "empty.ndjson", "empty.json.gz", "empty.ndjson.gz"})
+    void writesEmptyDocument(String filename) {
+        String path = directory.resolve(filename).toString();
+        new JsonStreamWriter<>(path, CustomerWithProducts.class).close();
+        try (Stream<CustomerWithProducts> customersWithProducts = new CustomerWithProductsConverter(path).stream()) {
+            assertEquals(0, customersWithProducts.count());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"customers.json", "customers.ndjson", "customers.json.gz", "customers.ndjson.gz"})
+    void writtenElementsAreReadBack(String filename) {
+        String path = directory.resolve(filename).toString();
+        List<CustomerWithProducts> written = IntStream.range(0, RECORDS).mapToObj(JsonStreamWriterTest::customerWithProducts).toList();
+        try (JsonStreamWriter<CustomerWithProducts> writer = new JsonStreamWriter<>(path, CustomerWithProducts.class)) {
+            writer.writeAll(written.stream());
+            assertEquals(RECORDS, writer.getCount());
+        }
+        List<CustomerWithProducts> read = new ArrayList<>();
+        new CustomerWithProductsConverter(path).forEach(read::add);
+        assertEquals(RECORDS, read.size());
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals(written.get(i).getCustomer(), read.get(i).getCustomer());
+            assertEquals(written.get(i).getProducts(), read.get(i).getProducts());
+        }
+    }
+
+    private static CustomerWithProducts customerWithProducts(int i) {
+        return CustomerWithProducts.builder()
+                .customer(Customer.builder().name("JAN").surname("KOWALSKI%d".formatted(i)).age(18 + i % 60).cash(new BigDecimal("1000.%02d".formatted(i % 100))).build())
+                .products(List.of(
+                        Product.builder().name("P%d".formatted(i % 7)).category(Category.KSIAZKA).price(new BigDecimal("12.5")).build(),
+                        Product.builder().name("Ł%d".formatted(i % 3)).category(Category.values()[i % Category.values().length]).price(BigDecimal.valueOf(i, 2)).build()))
+                .build();
+    }
+
+}
@@ -0,0 +1,293 @@
+package com.app.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+    Skompresowana bitmapa nieujemnych pozycji w stylu Roaring: pozycje są dzielone na
+    kawałki po 2^16 wg starszych 16 bitów, a każdy kawałek trzyma młodsze bity jako
+    posortowaną tablicę char (do ARRAY_LIMIT elementów, 2 bajty na pozycję) albo jako
+    bitmapę 8 KB. Rzadki klucz zajmuje więc miejsce proporcjonalne do liczby swoich
+    pozycji, a nie do liczby wszystkich klientów jak BitSet.
+
+    and/or/andNot nie zmieniają argumentów i zwracają nową bitmapę.
+ */
+final class CompressedBitmap {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int WORDS = 1 << (CHUNK_BITS - 6);
+    private static final int ARRAY_LIMIT = 4_096;
+
+    private int[] keys = new int[0];
+    private Chunk[] chunks = new Chunk[0];
+    private int chunksCount;
+
+    void add(int position) {
+        int key = position >>> CHUNK_BITS;
+        int index = Arrays.binarySearch(keys, 0, chunksCount, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new Chunk());
+        }
+        chunks[index].add((char) (position & CHUNK_MASK));
+    }
+
+    boolean contains(int position) {
+        int index = Arrays.binarySearch(keys, 0, chunksCount, position >>> CHUNK_BITS);
+        return index >= 0 && chunks[index].contains((char) (position & CHUNK_MASK));
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < chunksCount; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /*
+        Pozycje rosnąco.
+     */
+    void forEach(IntConsumer consumer) {
+        for (int i = 0; i < chunksCount; i++) {
+            chunks[i].forEach(keys[i] << CHUNK_BITS, consumer);
+        }
+    }
+
+    CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunksCount && j < other.chunksCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].and(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunksCount || j < other.chunksCount) {
+            if (j == other.chunksCount || i < chunksCount && keys[i] < other.keys[j]) {
+                result.appendChunk(keys[i], chunks[i].copy());
+                i++;
+            } else if (i == chunksCount || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].or(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < chunksCount; i++) {
+            while (j < other.chunksCount && other.keys[j] < keys[i]) {
+                j++;
+            }
+            result.appendChunk(keys[i], j < other.chunksCount && other.keys[j] == keys[i]
+                    ? chunks[i].andNot(other.chunks[j])
+                    : chunks[i].copy());
+        }
+        return result;
+    }
+
+    /*
+        Przybliżony rozmiar danych w bajtach - do porównania z BitSet.
+     */
+    long sizeInBytes() {
+        long size = 0L;
+        for (int i = 0; i < chunksCount; i++) {
+            size += Integer.BYTES + (chunks[i].words != null ? (long) Long.BYTES * WORDS : (long) Character.BYTES * chunks[i].values.length);
+        }
+        return size;
+    }
+
+    private void appendChunk(int key, Chunk chunk) {
+        if (chunk.cardinality > 0) {
+            insertChunk(chunksCount, key, chunk);
+        }
+    }
+
+    private void insertChunk(int index, int key, Chunk chunk) {
+        if (chunksCount == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(4, 2 * chunksCount));
+            chunks = Arrays.copyOf(chunks, keys.length);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunksCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunksCount - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        chunksCount++;
+    }
+
+    /*
+        Młodsze 16 bitów pozycji: values (posortowane) albo words - nigdy oba naraz.
+     */
+    private static final class Chunk {
+
+        private char[] values = new char[0];
+        private long[] words;
+        private int cardinality;
+
+        private static Chunk ofWords(long[] words) {
+            Chunk chunk = new Chunk();
+            for (long word : words) {
+                chunk.cardinality += Long.bitCount(word);
+            }
+            if (chunk.cardinality > ARRAY_LIMIT) {
+                chunk.words = words;
+                return chunk;
+            }
+            chunk.values = new char[chunk.cardinality];
+            int size = 0;
+            for (int word = 0; word < WORDS; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                    chunk.values[size++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+            return chunk;
+        }
+
+        private void add(char value) {
+            if (words != null) {
+                long bit = 1L << value;
+                if ((words[value >>> 6] & bit) == 0) {
+                    words[value >>> 6] |= bit;
+                    cardinality++;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                words = toWords();
+                values = null;
+                add(value);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, 2 * cardinality)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+        }
+
+        private boolean contains(char value) {
+            return words != null
+                    ? (words[value >>> 6] & (1L << value)) != 0
+                    : Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        private void forEach(int high, IntConsumer consumer) {
+            if (words == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    consumer.accept(high | values[i]);
+                }
+                return;
+            }
+            for (int word = 0; word < WORDS; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                    consumer.accept(high | (word << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+
+        private Chunk and(Chunk other) {
+            if (words == null || other.words == null) {
+                Chunk array = words == null ? this : other;
+                Chunk filter = array == this ? other : this;
+                return array.filter(filter, true);
+            }
+            long[] result = new long[WORDS];
+            for (int word = 0; word < WORDS; word++) {
+                result[word] = words[word] & other.words[word];
+            }
+            return ofWords(result);
+        }
+
+        private Chunk or(Chunk other) {
+            long[] result = toWords();
+            if (other.words != null) {
+                for (int word = 0; word < WORDS; word++) {
+                    result[word] |= other.words[word];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.values[i] >>> 6] |= 1L << other.values[i];
+                }
+            }
+            return ofWords(result);
+        }
+
+        private Chunk andNot(Chunk other) {
+            if (words == null) {
+                return filter(other, false);
+            }
+            long[] result = words.clone();
+            if (other.words != null) {
+                for (int word = 0; word < WORDS; word++) {
+                    result[word] &= ~other.words[word];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.values[i] >>> 6] &= ~(1L << other.values[i]);
+                }
+            }
+            return ofWords(result);
+        }
+
+        /*
+            Elementy tablicy values, które są (keep) albo nie są w other.
+         */
+        private Chunk filter(Chunk other, boolean keep) {
+            Chunk chunk = new Chunk();
+            chunk.values = new char[cardinality];
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keep) {
+                    chunk.values[chunk.cardinality++] = values[i];
+                }
+            }
+            return chunk;
+        }
+
+        private Chunk copy() {
+            Chunk chunk = new Chunk();
+            chunk.values = values == null ? null : Arrays.copyOf(values, cardinality);
+            chunk.words = words == null ? null : words.clone();
+            chunk.cardinality = cardinality;
+            return chunk;
+        }
+
+        private long[] toWords() {
+            if (words != null) {
+                return words.clone();
+            }
+            long[] result = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                result[values[i] >>> 6] |= 1L << values[i];
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.app.service;
+
+import com.app.persistence.model.Category;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+    Indeksy pomocnicze: dla wieku, przedziału gotówki i kupionej kategorii skompresowana
+    bitmapa numerów klientów (pozycji z OrdersIndex). Rzadkie klucze (pojedynczy wiek,
+    przedział gotówki) zajmują ok. 2 bajty na klienta z kluczem, gęste - bit na pozycję.
+
+    Zwracane bitmapy mogą być wewnętrznymi indeksami - wolno je tylko czytać, pod tą
+    samą blokadą odczytu co zapytanie.
+ */
+class CustomerBitmaps {
+
+    private static final BigDecimal CASH_BUCKET_WIDTH = BigDecimal.valueOf(1_000);
+
+    private final CompressedBitmap customers = new CompressedBitmap();
+    private final NavigableMap<Integer, CompressedBitmap> ages = new TreeMap<>();
+    private final NavigableMap<Long, CompressedBitmap> cashBuckets = new TreeMap<>();
+    private final CompressedBitmap[] categories = new CompressedBitmap[Category.values().length];
+    private final List<BigDecimal> cashes = new ArrayList<>();
+
+    CustomerBitmaps() {
+        Arrays.setAll(categories, ordinal -> new CompressedBitmap());
+    }
+
+    void addCustomer(int position, int age, BigDecimal cash) {
+        customers.add(position);
+        ages.computeIfAbsent(age, newAge -> new CompressedBitmap()).add(position);
+        cashBuckets.computeIfAbsent(cashBucket(cash), newBucket -> new CompressedBitmap()).add(position);
+        cashes.add(cash);
+    }
+
+    void addCategory(int position, int ordinal) {
+        categories[ordinal].add(position);
+    }
+
+    CompressedBitmap all() {
+        return customers;
+    }
+
+    CompressedBitmap ageBetween(int minAge, int maxAge) {
+        CompressedBitmap selected = new CompressedBitmap();
+        if (minAge <= maxAge) {
+            for (CompressedBitmap age : ages.subMap(minAge, true, maxAge, true).values()) {
+                selected = selected.or(age);
+            }
+        }
+        return selected;
+    }
+
+    /*
+        Gotówka w [from, to) - null oznacza brak ograniczenia. Przedziały leżące w całości
+        w zakresie są dołączane całymi bitmapami, a w dwóch brzegowych sprawdzamy kwoty.
+     */
+    CompressedBitmap cashBetween(BigDecimal from, BigDecimal to) {
+        CompressedBitmap selected = new CompressedBitmap();
+        if (from != null && to != null && from.compareTo(to) >= 0) {
+            return selected;
+        }
+        NavigableMap<Long, CompressedBitmap> buckets = cashBuckets;
+        if (from != null) {
+            buckets = buckets.tailMap(cashBucket(from), true);
+        }
+        if (to != null) {
+            buckets = buckets.headMap(cashBucket(to), true);
+        }
+        CompressedBitmap boundaryCustomers = new CompressedBitmap();
+        for (Map.Entry<Long, CompressedBitmap> bucket : buckets.entrySet()) {
+            boolean boundary = from != null && bucket.getKey() == cashBucket(from)
+                    || to != null && bucket.getKey() == cashBucket(to);
+            if (!boundary) {
+                selected = selected.or(bucket.getValue());
+                continue;
+            }
+            bucket.getValue().forEach(position -> {
+                BigDecimal cash = cashes.get(position);
+                if ((from == null || cash.compareTo(from) >= 0) && (to == null || cash.compareTo(to) < 0)) {
+                    boundaryCustomers.add(position);
+                }
+            });
+        }
+        return selected.or(boundaryCustomers);
+    }
+
+    CompressedBitmap bought(Category category) {
+        return categories[category.ordinal()];
+    }
+
+    private static long cashBucket(BigDecimal cash) {
+        return cash.divide(CASH_BUCKET_WIDTH, 0, RoundingMode.FLOOR).longValue();
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.app.service;
+
+import com.app.persistence.model.Customer;
+
+import java.math.BigDecimal;
+
+/*
+    Klient i jego saldo: gotówka pomniejszona o wydatki (ujemne - klient jest dłużnikiem).
+ */
+public record CustomerDebt(Customer customer, BigDecimal debt) {
+
+    public boolean isDebtor() {
+        return debt.signum() < 0;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.app.service;
+
+import com.app.persistence.model.Customer;
+
+import java.math.BigDecimal;
+
+/*
+    Klient z sumą wydatków (wszystkich albo w jednej kategorii) - pozycja rankingu.
+ */
+public record CustomerExpense(Customer customer, BigDecimal expense) {
+}
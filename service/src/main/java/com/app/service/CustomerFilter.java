@@ -0,0 +1,90 @@
+package com.app.service;
+
+import com.app.persistence.model.Category;
+import com.app.service.exception.OrdersServiceException;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+/*
+    Wybór klientów po wieku, gotówce i kupionych kategoriach, np.
+    ageBetween(25, 34).and(cashBelow(x)).and(bought(Category.ELEKTRONIKA)).
+    Filtr jest liczony na bitmapach indeksu, zanim cokolwiek zostanie zsumowane.
+ */
+public final class CustomerFilter {
+
+    private final Function<CustomerBitmaps, CompressedBitmap> selection;
+
+    private CustomerFilter(Function<CustomerBitmaps, CompressedBitmap> selection) {
+        this.selection = selection;
+    }
+
+    public static CustomerFilter all() {
+        return new CustomerFilter(CustomerBitmaps::all);
+    }
+
+    /*
+        Wiek od minAge do maxAge włącznie.
+     */
+    public static CustomerFilter ageBetween(int minAge, int maxAge) {
+        return new CustomerFilter(bitmaps -> bitmaps.ageBetween(minAge, maxAge));
+    }
+
+    public static CustomerFilter cashBelow(BigDecimal cash) {
+        requireCash(cash);
+        return new CustomerFilter(bitmaps -> bitmaps.cashBetween(null, cash));
+    }
+
+    public static CustomerFilter cashAtLeast(BigDecimal cash) {
+        requireCash(cash);
+        return new CustomerFilter(bitmaps -> bitmaps.cashBetween(cash, null));
+    }
+
+    /*
+        Gotówka od from włącznie do to wyłącznie.
+     */
+    public static CustomerFilter cashBetween(BigDecimal from, BigDecimal to) {
+        requireCash(from);
+        requireCash(to);
+        return new CustomerFilter(bitmaps -> bitmaps.cashBetween(from, to));
+    }
+
+    public static CustomerFilter bought(Category category) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        return new CustomerFilter(bitmaps -> bitmaps.bought(category));
+    }
+
+    public CustomerFilter and(CustomerFilter other) {
+        requireFilter(other);
+        return new CustomerFilter(bitmaps -> select(bitmaps).and(other.select(bitmaps)));
+    }
+
+    public CustomerFilter or(CustomerFilter other) {
+        requireFilter(other);
+        return new CustomerFilter(bitmaps -> select(bitmaps).or(other.select(bitmaps)));
+    }
+
+    public CustomerFilter andNot(CustomerFilter other) {
+        requireFilter(other);
+        return new CustomerFilter(bitmaps -> select(bitmaps).andNot(other.select(bitmaps)));
+    }
+
+    CompressedBitmap select(CustomerBitmaps bitmaps) {
+        return selection.apply(bitmaps);
+    }
+
+    private static void requireCash(BigDecimal cash) {
+        if (cash == null) {
+            throw new OrdersServiceException("Cash is null");
+        }
+    }
+
+    private static void requireFilter(CustomerFilter filter) {
+        if (filter == null) {
+            throw new OrdersServiceException("Customer filter is null");
+        }
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.app.service;
+
+import java.util.List;
+
+/*
+    Strona salda klientów posortowana od największego zadłużenia. nextCursor
+    przekazany do kolejnego wywołania zwraca następną stronę; null - to ostatnia strona.
+ */
+public record DebtsPage(List<CustomerDebt> debts, String nextCursor) {
+}
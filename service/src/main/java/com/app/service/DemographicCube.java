@@ -0,0 +1,254 @@
+package com.app.service;
+
+import com.app.persistence.model.Category;
+import com.app.service.exception.OrdersServiceException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+    Gęsta kostka przedział wieku x kategoria. Komórka [przedział * liczba kategorii + ordinal]
+    trzyma liczbę kupionych sztuk i sumę wydatków, a wiersz przedziału - liczbę klientów.
+    Przedział to wiek / bandWidth, a jego kluczem w wynikach jest najniższy wiek przedziału.
+ */
+public final class DemographicCube {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final int bandWidth;
+    private int firstBand;
+    private int bandsCount;
+    private long[] customers = new long[0];
+    private long[] quantities = new long[0];
+    private MoneySum[] expenses = new MoneySum[0];
+
+    public DemographicCube(int bandWidth) {
+        if (bandWidth < 1) {
+            throw new OrdersServiceException("Age band width has to be >= 1");
+        }
+        this.bandWidth = bandWidth;
+    }
+
+    void addCustomer(int age) {
+        int row = row(age);
+        customers[row]++;
+    }
+
+    void add(int age, int ordinal, Money price, long quantity) {
+        int cell = row(age) * CATEGORIES.length + ordinal;
+        quantities[cell] += quantity;
+        expenses[cell].add(price, quantity);
+    }
+
+    /*
+        Klient razem z już zsumowanymi sztukami i wydatkami per kategoria.
+     */
+    void addCustomer(int age, long[] customerQuantities, MoneySum[] customerExpenses) {
+        add(Math.floorDiv(age, bandWidth), 1L, customerQuantities, customerExpenses, 0);
+    }
+
+    private void add(int band, long bandCustomers, long[] bandQuantities, MoneySum[] bandExpenses, int from) {
+        int row = rowOfBand(band);
+        customers[row] += bandCustomers;
+        for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+            quantities[row * CATEGORIES.length + ordinal] += bandQuantities[from + ordinal];
+            expenses[row * CATEGORIES.length + ordinal].add(bandExpenses[from + ordinal]);
+        }
+    }
+
+    private int row(int age) {
+        return rowOfBand(Math.floorDiv(age, bandWidth));
+    }
+
+    /*
+        Tablice rosną w obie strony, gdy pojawi się wiek spoza dotychczasowych przedziałów.
+     */
+    private int rowOfBand(int band) {
+        if (bandsCount == 0) {
+            resize(band, 1);
+        } else if (band < firstBand) {
+            resize(band, firstBand + bandsCount - band);
+        } else if (band >= firstBand + bandsCount) {
+            resize(firstBand, band - firstBand + 1);
+        }
+        return band - firstBand;
+    }
+
+    private void resize(int newFirstBand, int newBandsCount) {
+        int shift = bandsCount == 0 ? 0 : firstBand - newFirstBand;
+        long[] newCustomers = new long[newBandsCount];
+        long[] newQuantities = new long[newBandsCount * CATEGORIES.length];
+        MoneySum[] newExpenses = new MoneySum[newBandsCount * CATEGORIES.length];
+        System.arraycopy(customers, 0, newCustomers, shift, bandsCount);
+        System.arraycopy(quantities, 0, newQuantities, shift * CATEGORIES.length, quantities.length);
+        System.arraycopy(expenses, 0, newExpenses, shift * CATEGORIES.length, expenses.length);
+        for (int cell = 0; cell < newExpenses.length; cell++) {
+            if (newExpenses[cell] == null) {
+                newExpenses[cell] = new MoneySum();
+            }
+        }
+        firstBand = newFirstBand;
+        bandsCount = newBandsCount;
+        customers = newCustomers;
+        quantities = newQuantities;
+        expenses = newExpenses;
+    }
+
+    public int getBandWidth() {
+        return bandWidth;
+    }
+
+    public int bandOf(int age) {
+        return Math.floorDiv(age, bandWidth) * bandWidth;
+    }
+
+    /*
+        Przedziały, w których jest co najmniej jeden klient, rosnąco.
+     */
+    public List<Integer> getBands() {
+        List<Integer> bands = new ArrayList<>();
+        for (int row = 0; row < bandsCount; row++) {
+            if (customers[row] > 0) {
+                bands.add((firstBand + row) * bandWidth);
+            }
+        }
+        return bands;
+    }
+
+    public long getCustomersCount(int age) {
+        int row = existingRow(age);
+        return row == -1 ? 0L : customers[row];
+    }
+
+    public long getQuantity(int age, Category category) {
+        int row = existingRow(age);
+        return row == -1 ? 0L : quantities[row * CATEGORIES.length + ordinalOf(category)];
+    }
+
+    public BigDecimal getExpense(int age, Category category) {
+        int row = existingRow(age);
+        return row == -1 ? BigDecimal.ZERO : expenses[row * CATEGORIES.length + ordinalOf(category)].toBigDecimal();
+    }
+
+    /*
+        Suma po przedziałach obejmujących wiek od minAge do maxAge - z dokładnością
+        do szerokości przedziału.
+     */
+    public long getQuantity(int minAge, int maxAge, Category category) {
+        int ordinal = ordinalOf(category);
+        long quantity = 0L;
+        for (int row = fromRow(minAge); row <= toRow(maxAge); row++) {
+            quantity += quantities[row * CATEGORIES.length + ordinal];
+        }
+        return quantity;
+    }
+
+    public BigDecimal getExpense(int minAge, int maxAge, Category category) {
+        int ordinal = ordinalOf(category);
+        MoneySum expense = new MoneySum();
+        for (int row = fromRow(minAge); row <= toRow(maxAge); row++) {
+            expense.add(expenses[row * CATEGORIES.length + ordinal]);
+        }
+        return expense.toBigDecimal();
+    }
+
+    public Map<Category, Long> getQuantities(int age) {
+        int row = existingRow(age);
+        Map<Category, Long> bandQuantities = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            bandQuantities.put(category, row == -1 ? 0L : quantities[row * CATEGORIES.length + category.ordinal()]);
+        }
+        return bandQuantities;
+    }
+
+    public Map<Category, BigDecimal> getExpenses(int age) {
+        int row = existingRow(age);
+        Map<Category, BigDecimal> bandExpenses = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            bandExpenses.put(category, row == -1 ? BigDecimal.ZERO : expenses[row * CATEGORIES.length + category.ordinal()].toBigDecimal());
+        }
+        return bandExpenses;
+    }
+
+    public Map<Integer, Map<Category, Long>> getQuantitiesByBand() {
+        Map<Integer, Map<Category, Long>> quantitiesByBand = new LinkedHashMap<>();
+        getBands().forEach(band -> quantitiesByBand.put(band, getQuantities(band)));
+        return quantitiesByBand;
+    }
+
+    public Map<Integer, Map<Category, BigDecimal>> getExpensesByBand() {
+        Map<Integer, Map<Category, BigDecimal>> expensesByBand = new LinkedHashMap<>();
+        getBands().forEach(band -> expensesByBand.put(band, getExpenses(band)));
+        return expensesByBand;
+    }
+
+    /*
+        Kategorie o największej liczbie sztuk w każdym przedziale z klientami. Przedział,
+        którego klienci nic nie kupili, kończy się NoSuchElementException.
+     */
+    public Map<Integer, List<Category>> getMostPopularCategoriesByBand() {
+        Map<Integer, List<Category>> mostPopularCategories = new HashMap<>();
+        for (int row = 0; row < bandsCount; row++) {
+            if (customers[row] == 0) {
+                continue;
+            }
+            int from = row * CATEGORIES.length;
+            long maxQuantity = Arrays.stream(quantities, from, from + CATEGORIES.length).max().orElseThrow();
+            if (maxQuantity == 0) {
+                throw new NoSuchElementException("No value present");
+            }
+            List<Category> categories = new ArrayList<>();
+            for (Category category : CATEGORIES) {
+                if (quantities[from + category.ordinal()] == maxQuantity) {
+                    categories.add(category);
+                }
+            }
+            mostPopularCategories.put((firstBand + row) * bandWidth, categories);
+        }
+        return mostPopularCategories;
+    }
+
+    /*
+        Nowa kostka z szerszymi przedziałami. Szerokość musi być wielokrotnością
+        obecnej, żeby żaden przedział nie był dzielony.
+     */
+    public DemographicCube rollUp(int newBandWidth) {
+        if (newBandWidth < 1 || newBandWidth % bandWidth != 0) {
+            throw new OrdersServiceException("Age band width %d is not a multiple of %d".formatted(newBandWidth, bandWidth));
+        }
+        DemographicCube rolledUp = new DemographicCube(newBandWidth);
+        for (int row = 0; row < bandsCount; row++) {
+            rolledUp.add(Math.floorDiv((firstBand + row) * bandWidth, newBandWidth),
+                    customers[row], quantities, expenses, row * CATEGORIES.length);
+        }
+        return rolledUp;
+    }
+
+    private int existingRow(int age) {
+        int row = Math.floorDiv(age, bandWidth) - firstBand;
+        return row >= 0 && row < bandsCount ? row : -1;
+    }
+
+    private int fromRow(int minAge) {
+        return Math.max(0, Math.floorDiv(minAge, bandWidth) - firstBand);
+    }
+
+    private int toRow(int maxAge) {
+        return Math.min(bandsCount - 1, Math.floorDiv(maxAge, bandWidth) - firstBand);
+    }
+
+    private static int ordinalOf(Category category) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        return category.ordinal();
+    }
+
+}
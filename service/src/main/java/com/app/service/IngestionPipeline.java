@@ -0,0 +1,396 @@
+package com.app.service;
+
+import com.app.persistence.converter.ByteRange;
+import com.app.persistence.converter.CustomerWithProductsConverter;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.CustomerRegistry;
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
+import com.app.persistence.model.ProductCatalog;
+import com.app.persistence.validator.ValidationStage;
+import com.app.service.exception.OrdersServiceException;
+import com.app.service.metrics.OrdersMetrics;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/*
+    Ładowanie w trzech etapach połączonych ograniczonymi kolejkami:
+    parsowanie plików albo zakresów plików NDJSON (paczki po CHUNK_SIZE rekordów) -> pula walidatorów ->
+    agregatory, z których każdy odpowiada za inną część klientów (wg hashCode).
+    Pełna kolejka wstrzymuje etap poprzedni, więc w pamięci jest tylko kilka paczek.
+
+    Klienci trafiają do wynikowej mapy w kolejności pierwszego wystąpienia w plikach,
+    tak jak przy ładowaniu sekwencyjnym, więc remisy w zapytaniach nie zależą od wątków.
+
+    Po błędzie żaden etap nie czeka bez końca na kolejce - wkładanie i pobieranie
+    ponawiają krótkie oczekiwania i kończą się, gdy failure jest ustawione. Samo
+    przerwanie wątku nie wystarcza: złapany InterruptedException czyści flagę,
+    a parser w finally wkładałby znacznik końca do pełnej kolejki, której nikt nie czyta.
+ */
+class IngestionPipeline {
+
+    static final int CHUNK_SIZE = 1024;
+    static final long MIN_SPLIT_BYTES = 8L << 20;
+    private static final int UNIT_POSITION_SHIFT = 32;
+    private static final long QUEUE_WAIT_MILLIS = 50L;
+
+    private final CustomerRegistry customerRegistry;
+    private final ProductCatalog productCatalog;
+    private final ValidationStage validationStage;
+    private final IngestionStats stats;
+    private final int parsers;
+    private final int validators;
+    private final int aggregators;
+
+    IngestionPipeline(CustomerRegistry customerRegistry, ProductCatalog productCatalog, ValidationStage validationStage,
+                      IngestionStats stats, int parsers, int validators, int aggregators) {
+        this.customerRegistry = customerRegistry;
+        this.productCatalog = productCatalog;
+        this.validationStage = validationStage;
+        this.stats = stats;
+        this.parsers = parsers;
+        this.validators = validators;
+        this.aggregators = aggregators;
+    }
+
+    Map<Customer, MutableObjectLongMap<Product>> run(List<String> jsonFilenames) {
+        return new Run(jsonFilenames).execute();
+    }
+
+    /*
+        Porcja pracy parsera: cały plik albo zakres bajtów pliku NDJSON.
+     */
+    private record Unit(int file, ByteRange range) {
+    }
+
+    private record Chunk(int unit, long firstPosition, List<CustomerWithProducts> records) {
+    }
+
+    private record ShardChunk(long[] positions, List<CustomerWithProducts> records) {
+    }
+
+    private static final Chunk END_OF_FILES = new Chunk(-1, -1L, List.of());
+    private static final ShardChunk END_OF_CHUNKS = new ShardChunk(new long[0], List.of());
+
+    private static final class Shard {
+        private final Map<Customer, MutableObjectLongMap<Product>> customersWithProducts = new HashMap<>();
+        private final MutableObjectLongMap<Customer> firstPositions = new ObjectLongHashMap<>();
+    }
+
+    private final class Run {
+
+        private final List<String> jsonFilenames;
+        private final BlockingQueue<Chunk> validationQueue = new ArrayBlockingQueue<>(2 * validators);
+        private final List<BlockingQueue<ShardChunk>> aggregationQueues = new ArrayList<>(aggregators);
+        private final Shard[] shards = new Shard[aggregators];
+        private final List<Unit> units = new ArrayList<>();
+        private final AtomicInteger nextUnit = new AtomicInteger();
+        private final AtomicInteger runningParsers = new AtomicInteger();
+        private final AtomicInteger runningValidators = new AtomicInteger(validators);
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final LongAdder[] fileParseNanos;
+        private final LongAdder[] fileRecords;
+        private final LongAdder[] fileRejected;
+        private ExecutorService executor;
+
+        private Run(List<String> jsonFilenames) {
+            this.jsonFilenames = jsonFilenames;
+            this.fileParseNanos = new LongAdder[jsonFilenames.size()];
+            this.fileRecords = new LongAdder[jsonFilenames.size()];
+            this.fileRejected = new LongAdder[jsonFilenames.size()];
+            Arrays.setAll(fileParseNanos, file -> new LongAdder());
+            Arrays.setAll(fileRecords, file -> new LongAdder());
+            Arrays.setAll(fileRejected, file -> new LongAdder());
+            for (int shard = 0; shard < aggregators; shard++) {
+                aggregationQueues.add(new ArrayBlockingQueue<>(4));
+                shards[shard] = new Shard();
+            }
+        }
+
+        private Map<Customer, MutableObjectLongMap<Product>> execute() {
+            for (int file = 0; file < jsonFilenames.size(); file++) {
+                String filename = jsonFilenames.get(file);
+                try {
+                    for (ByteRange range : new CustomerWithProductsConverter(filename, customerRegistry, productCatalog)
+                            .split(parsers, MIN_SPLIT_BYTES)) {
+                        units.add(new Unit(file, range));
+                    }
+                } catch (RuntimeException e) {
+                    throw new OrdersServiceException("Cannot load json file %s: %s".formatted(filename, e.getMessage()));
+                }
+            }
+            int unitParsers = Math.max(1, Math.min(parsers, units.size()));
+            runningParsers.set(unitParsers);
+            executor = Executors.newFixedThreadPool(unitParsers + validators + aggregators);
+            List<Future<?>> tasks = new ArrayList<>();
+            try {
+                for (int i = 0; i < unitParsers; i++) {
+                    tasks.add(executor.submit(() -> stage(this::parse)));
+                }
+                for (int i = 0; i < validators; i++) {
+                    tasks.add(executor.submit(() -> stage(this::validate)));
+                }
+                for (int shard = 0; shard < aggregators; shard++) {
+                    int aggregator = shard;
+                    tasks.add(executor.submit(() -> stage(() -> aggregate(aggregator))));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } catch (ExecutionException e) {
+                failed(new OrdersServiceException(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed(new OrdersServiceException("Loading json files interrupted"));
+            } finally {
+                executor.shutdownNow();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            recordFileMetrics();
+            return mergeShards();
+        }
+
+        private void stage(InterruptibleTask task) {
+            try {
+                task.run();
+            } catch (InterruptedException e) {
+                // inny etap zgłosił błąd i zatrzymał potok
+            } catch (RuntimeException e) {
+                failed(e);
+            }
+        }
+
+        private void failed(RuntimeException e) {
+            if (failure.compareAndSet(null, e instanceof OrdersServiceException ? e : new OrdersServiceException(e.getMessage()))) {
+                executor.shutdownNow();
+            }
+        }
+
+        private void parse() throws InterruptedException {
+            try {
+                for (int unit = nextUnit.getAndIncrement(); unit < units.size() && failure.get() == null;
+                     unit = nextUnit.getAndIncrement()) {
+                    parseUnit(unit);
+                }
+            } finally {
+                if (runningParsers.decrementAndGet() == 0) {
+                    for (int i = 0; i < validators; i++) {
+                        if (!offer(validationQueue, END_OF_FILES)) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void parseUnit(int unit) throws InterruptedException {
+            int file = units.get(unit).file();
+            String filename = jsonFilenames.get(file);
+            long start = System.nanoTime();
+            long waiting = 0L;
+            long position = 0L;
+            List<CustomerWithProducts> records = new ArrayList<>(CHUNK_SIZE);
+            try (Stream<CustomerWithProducts> customersWithProducts =
+                         new CustomerWithProductsConverter(filename, customerRegistry, productCatalog).stream(units.get(unit).range())) {
+                Iterator<CustomerWithProducts> iterator = customersWithProducts.iterator();
+                while (iterator.hasNext()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                    records.add(iterator.next());
+                    if (records.size() == CHUNK_SIZE) {
+                        waiting += send(new Chunk(unit, position, records));
+                        position += records.size();
+                        records = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new OrdersServiceException("Cannot load json file %s: %s".formatted(filename, e.getMessage()));
+            }
+            if (!records.isEmpty()) {
+                waiting += send(new Chunk(unit, position, records));
+                position += records.size();
+            }
+            long parseNanos = System.nanoTime() - start - waiting;
+            fileParseNanos[file].add(parseNanos);
+            fileRecords[file].add(position);
+            stats.parseNanos.add(parseNanos);
+            stats.parsedRecords.add(position);
+        }
+
+        private long send(Chunk chunk) throws InterruptedException {
+            if (validationQueue.offer(chunk)) {
+                return 0L;
+            }
+            stats.validationQueueFull.increment();
+            long start = System.nanoTime();
+            if (!offer(validationQueue, chunk)) {
+                throw new InterruptedException();
+            }
+            return System.nanoTime() - start;
+        }
+
+        private void validate() throws InterruptedException {
+            try {
+                for (Chunk chunk = poll(validationQueue); chunk != null && chunk != END_OF_FILES; chunk = poll(validationQueue)) {
+                    validateChunk(chunk);
+                }
+            } finally {
+                if (runningValidators.decrementAndGet() == 0) {
+                    for (BlockingQueue<ShardChunk> aggregationQueue : aggregationQueues) {
+                        if (!offer(aggregationQueue, END_OF_CHUNKS)) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void validateChunk(Chunk chunk) throws InterruptedException {
+            long start = System.nanoTime();
+            int file = units.get(chunk.unit()).file();
+            String filename = jsonFilenames.get(file);
+            List<CustomerWithProducts> records = chunk.records();
+            int[] recordShards = new int[records.size()];
+            int[] shardSizes = new int[aggregators];
+            for (int i = 0; i < records.size(); i++) {
+                CustomerWithProducts customerWithProducts = records.get(i);
+                boolean accepted;
+                try {
+                    accepted = validationStage.accept(filename, customerWithProducts);
+                } catch (RuntimeException e) {
+                    throw new OrdersServiceException("Cannot load json file %s: %s".formatted(filename, e.getMessage()));
+                }
+                if (accepted) {
+                    recordShards[i] = shardOf(customerWithProducts.getCustomer());
+                    shardSizes[recordShards[i]]++;
+                } else {
+                    recordShards[i] = -1;
+                    fileRejected[file].increment();
+                }
+            }
+            ShardChunk[] shardChunks = new ShardChunk[aggregators];
+            long unitPosition = ((long) chunk.unit() << UNIT_POSITION_SHIFT) + chunk.firstPosition();
+            for (int i = 0; i < records.size(); i++) {
+                int shard = recordShards[i];
+                if (shard != -1) {
+                    if (shardChunks[shard] == null) {
+                        shardChunks[shard] = new ShardChunk(new long[shardSizes[shard]], new ArrayList<>(shardSizes[shard]));
+                    }
+                    shardChunks[shard].positions()[shardChunks[shard].records().size()] = unitPosition + i;
+                    shardChunks[shard].records().add(records.get(i));
+                }
+            }
+            stats.validatedRecords.add(records.size());
+            stats.validationNanos.add(System.nanoTime() - start);
+            for (int shard = 0; shard < aggregators; shard++) {
+                if (shardChunks[shard] != null && !aggregationQueues.get(shard).offer(shardChunks[shard])) {
+                    stats.aggregationQueueFull.increment();
+                    if (!offer(aggregationQueues.get(shard), shardChunks[shard])) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+        }
+
+        private void aggregate(int aggregator) throws InterruptedException {
+            BlockingQueue<ShardChunk> aggregationQueue = aggregationQueues.get(aggregator);
+            Shard shard = shards[aggregator];
+            for (ShardChunk chunk = poll(aggregationQueue); chunk != null && chunk != END_OF_CHUNKS; chunk = poll(aggregationQueue)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < chunk.records().size(); i++) {
+                    CustomerWithProducts customerWithProducts = chunk.records().get(i);
+                    long position = chunk.positions()[i];
+                    shard.firstPositions.updateValue(customerWithProducts.getCustomer(), Long.MAX_VALUE, first -> Math.min(first, position));
+                    MutableObjectLongMap<Product> products = shard.customersWithProducts
+                            .computeIfAbsent(customerWithProducts.getCustomer(), customer -> new ObjectLongHashMap<>());
+                    customerWithProducts.getProducts().forEach(product -> products.addToValue(product, 1L));
+                }
+                stats.aggregatedRecords.add(chunk.records().size());
+                stats.aggregationNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        /*
+            Wkłada element, chyba że potok w międzyczasie zgłosił błąd - wtedy zwraca false.
+         */
+        private <T> boolean offer(BlockingQueue<T> queue, T element) throws InterruptedException {
+            while (failure.get() == null) {
+                if (queue.offer(element, QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+            Pobiera element albo zwraca null, gdy potok zgłosił błąd.
+         */
+        private <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+            while (failure.get() == null) {
+                T element = queue.poll(QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (element != null) {
+                    return element;
+                }
+            }
+            return null;
+        }
+
+        private int shardOf(Customer customer) {
+            return Math.floorMod(customer.hashCode(), aggregators);
+        }
+
+        private Map<Customer, MutableObjectLongMap<Product>> mergeShards() {
+            List<Customer> customers = new ArrayList<>();
+            MutableObjectLongMap<Customer> firstPositions = new ObjectLongHashMap<>();
+            for (Shard shard : shards) {
+                customers.addAll(shard.customersWithProducts.keySet());
+                firstPositions.putAll(shard.firstPositions);
+            }
+            customers.sort((first, second) -> Long.compare(firstPositions.get(first), firstPositions.get(second)));
+            Map<Customer, MutableObjectLongMap<Product>> customersWithProducts = new LinkedHashMap<>();
+            for (Customer customer : customers) {
+                customersWithProducts.put(customer, shards[shardOf(customer)].customersWithProducts.get(customer));
+            }
+            return customersWithProducts;
+        }
+
+        private void recordFileMetrics() {
+            OrdersMetrics metrics = OrdersMetrics.global();
+            if (!metrics.isEnabled()) {
+                return;
+            }
+            for (int file = 0; file < jsonFilenames.size(); file++) {
+                metrics.recordFile(jsonFilenames.get(file), fileParseNanos[file].sum(), OrdersLoader.fileSize(jsonFilenames.get(file)),
+                        fileRecords[file].sum(), fileRejected[file].sum());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface InterruptibleTask {
+        void run() throws InterruptedException;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.app.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Liczniki etapów potoku ładowania (sumowane przez wszystkie ładowania).
+    Czasy etapów to suma czasu pracy wątków etapu, bez czekania na kolejki.
+ */
+public final class IngestionStats {
+
+    final LongAdder parsedRecords = new LongAdder();
+    final LongAdder validatedRecords = new LongAdder();
+    final LongAdder aggregatedRecords = new LongAdder();
+    final LongAdder parseNanos = new LongAdder();
+    final LongAdder validationNanos = new LongAdder();
+    final LongAdder aggregationNanos = new LongAdder();
+    final LongAdder validationQueueFull = new LongAdder();
+    final LongAdder aggregationQueueFull = new LongAdder();
+
+    public long getParsedRecords() {
+        return parsedRecords.sum();
+    }
+
+    public long getValidatedRecords() {
+        return validatedRecords.sum();
+    }
+
+    public long getAggregatedRecords() {
+        return aggregatedRecords.sum();
+    }
+
+    public long getParseNanos() {
+        return parseNanos.sum();
+    }
+
+    public long getValidationNanos() {
+        return validationNanos.sum();
+    }
+
+    public long getAggregationNanos() {
+        return aggregationNanos.sum();
+    }
+
+    /*
+        Ile razy etap czekał, bo kolejka do następnego etapu była pełna.
+     */
+    public long getValidationQueueFull() {
+        return validationQueueFull.sum();
+    }
+
+    public long getAggregationQueueFull() {
+        return aggregationQueueFull.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "IngestionStats(parsed=%d in %d ms, validated=%d in %d ms, aggregated=%d in %d ms, validationQueueFull=%d, aggregationQueueFull=%d)"
+                .formatted(getParsedRecords(), getParseNanos() / 1_000_000,
+                        getValidatedRecords(), getValidationNanos() / 1_000_000,
+                        getAggregatedRecords(), getAggregationNanos() / 1_000_000,
+                        getValidationQueueFull(), getAggregationQueueFull());
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.app.service;
+
+import java.math.BigDecimal;
+
+/*
+    Kwota jako liczba jednostek (long) ze skalą - tak jak BigDecimal, ale bez
+    alokacji przy liczeniu. Wartości, które nie mieszczą się w long albo mają
+    ujemną skalę, są trzymane jako BigDecimal.
+ */
+public final class Money implements Comparable<Money> {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    final long unscaled;
+    final int scale;
+    final BigDecimal exact;
+
+    private Money(long unscaled, int scale, BigDecimal exact) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.exact = exact;
+    }
+
+    public static Money of(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.scale() >= 0 && value.unscaledValue().bitLength() < Long.SIZE) {
+            return new Money(value.unscaledValue().longValue(), value.scale(), null);
+        }
+        return new Money(0L, 0, value);
+    }
+
+    public int signum() {
+        return exact == null ? Long.signum(unscaled) : exact.signum();
+    }
+
+    public BigDecimal toBigDecimal() {
+        return exact == null ? BigDecimal.valueOf(unscaled, scale) : exact;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (exact == null && other.exact == null) {
+            try {
+                return compare(unscaled, scale, other.unscaled, other.scale);
+            } catch (ArithmeticException e) {
+                // porównanie poniżej na BigDecimal
+            }
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+
+    static int compare(long unscaled, int scale, long otherUnscaled, int otherScale) {
+        int commonScale = Math.max(scale, otherScale);
+        return Long.compare(
+                scaleUp(unscaled, commonScale - scale),
+                scaleUp(otherUnscaled, commonScale - otherScale));
+    }
+
+    static long scaleUp(long unscaled, int digits) {
+        if (digits == 0) {
+            return unscaled;
+        }
+        if (digits >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("long overflow");
+        }
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[digits]);
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.app.service;
+
+import java.math.BigDecimal;
+
+import static com.app.service.Money.scaleUp;
+
+/*
+    Suma kwot liczona w miejscu na long. Wynik toBigDecimal() jest taki sam jak
+    przy sumowaniu BigDecimal (ta sama wartość i skala). Po przepełnieniu suma
+    przechodzi na BigDecimal.
+ */
+public final class MoneySum implements Comparable<MoneySum> {
+
+    private long unscaled;
+    private int scale;
+    private BigDecimal exact;
+
+    public void add(Money price, long quantity) {
+        if (exact == null && price.exact == null) {
+            try {
+                long amount = Math.multiplyExact(price.unscaled, quantity);
+                int newScale = Math.max(scale, price.scale);
+                long newUnscaled = Math.addExact(
+                        scaleUp(unscaled, newScale - scale),
+                        scaleUp(amount, newScale - price.scale));
+                unscaled = newUnscaled;
+                scale = newScale;
+                return;
+            } catch (ArithmeticException e) {
+                // dalej liczymy na BigDecimal
+            }
+        }
+        exact = toBigDecimal().add(price.toBigDecimal().multiply(BigDecimal.valueOf(quantity)));
+    }
+
+    public void add(MoneySum other) {
+        if (exact == null && other.exact == null) {
+            try {
+                int newScale = Math.max(scale, other.scale);
+                long newUnscaled = Math.addExact(
+                        scaleUp(unscaled, newScale - scale),
+                        scaleUp(other.unscaled, newScale - other.scale));
+                unscaled = newUnscaled;
+                scale = newScale;
+                return;
+            } catch (ArithmeticException e) {
+                // dalej liczymy na BigDecimal
+            }
+        }
+        exact = toBigDecimal().add(other.toBigDecimal());
+    }
+
+    /*
+        minuend - suma, np. gotówka klienta pomniejszona o jego wydatki.
+     */
+    public BigDecimal subtractFrom(Money minuend) {
+        if (exact == null && minuend.exact == null) {
+            try {
+                int commonScale = Math.max(scale, minuend.scale);
+                return BigDecimal.valueOf(Math.subtractExact(
+                        scaleUp(minuend.unscaled, commonScale - minuend.scale),
+                        scaleUp(unscaled, commonScale - scale)), commonScale);
+            } catch (ArithmeticException e) {
+                // wynik poniżej na BigDecimal
+            }
+        }
+        return minuend.toBigDecimal().subtract(toBigDecimal());
+    }
+
+    public MoneySum copy() {
+        MoneySum copy = new MoneySum();
+        copy.unscaled = unscaled;
+        copy.scale = scale;
+        copy.exact = exact;
+        return copy;
+    }
+
+    public int signum() {
+        return exact == null ? Long.signum(unscaled) : exact.signum();
+    }
+
+    public BigDecimal toBigDecimal() {
+        return exact == null ? BigDecimal.valueOf(unscaled, scale) : exact;
+    }
+
+    @Override
+    public int compareTo(MoneySum other) {
+        if (exact == null && other.exact == null) {
+            try {
+                return Money.compare(unscaled, scale, other.unscaled, other.scale);
+            } catch (ArithmeticException e) {
+                // porównanie poniżej na BigDecimal
+            }
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+
+}
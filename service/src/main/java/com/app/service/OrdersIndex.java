@@ -0,0 +1,671 @@
+package com.app.service;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.exception.OrdersServiceException;
+import com.app.service.report.PartialReport;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.app.persistence.model.CustomerUtils.toAge;
+import static com.app.persistence.model.ProductUtils.toCategory;
+import static com.app.persistence.model.ProductUtils.toPrice;
+
+/*
+    Agregaty liczone raz podczas ładowania danych i aktualizowane przyrostowo
+    przy dopisywaniu zakupów. Zapytania OrdersService odczytują gotowe wartości
+    zamiast ponownie przechodzić po wszystkich zakupach.
+ */
+class OrdersIndex {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Comparator<CustomerStats> EXPENSE_ORDER = Comparator
+            .comparing((CustomerStats customerStats) -> customerStats.expense).reversed()
+            .thenComparingInt(customerStats -> customerStats.position);
+
+    private final Map<Customer, CustomerStats> customers = new LinkedHashMap<>();
+    private static final Comparator<CustomerDebtAt> DEBT_ORDER = Comparator
+            .comparing((CustomerDebtAt customerDebt) -> customerDebt.debt)
+            .thenComparingInt(customerDebt -> customerDebt.position);
+
+    private final List<CustomerStats> customersByPosition = new ArrayList<>();
+    private CustomerDebtAt[] debtOrder = new CustomerDebtAt[0];
+    private final CustomerBitmaps customerBitmaps = new CustomerBitmaps();
+    private final DemographicCube demographicCube = new DemographicCube(1);
+    private final CategoryStats[] categories = new CategoryStats[CATEGORIES.length];
+    private final Map<Product, Money> prices = new HashMap<>();
+
+    private MoneySum maxExpense;
+    private final Set<Customer> customersWithMaxExpense = new LinkedHashSet<>();
+    private final CustomerStats[] customersWithMaxExpenseOnCategory = new CustomerStats[CATEGORIES.length];
+    private final CustomerStats[] customersWithMaxQuantityOfCategory = new CustomerStats[CATEGORIES.length];
+
+    OrdersIndex(Map<Customer, MutableObjectLongMap<Product>> customersWithProducts) {
+        Arrays.setAll(categories, ordinal -> new CategoryStats());
+        customersWithProducts.forEach(this::addPurchases);
+        computeMaxima();
+        updateDebtOrder(new ArrayList<>(customers.values()));
+    }
+
+    /*
+        Dopisuje zakupy z nowej partii. Maksima są poprawiane tylko dla klientów
+        z partii - chyba że któraś suma zmalała (ujemna cena), wtedy liczymy je od nowa.
+     */
+    void append(Map<Customer, MutableObjectLongMap<Product>> customersWithProducts) {
+        List<CustomerStats> changedCustomers = new ArrayList<>(customersWithProducts.size());
+        boolean expenseDecreased = false;
+        for (Map.Entry<Customer, MutableObjectLongMap<Product>> entry : customersWithProducts.entrySet()) {
+            CustomerStats customerStats = addPurchases(entry.getKey(), entry.getValue());
+            expenseDecreased |= customerStats.expenseDecreased;
+            changedCustomers.add(customerStats);
+        }
+        if (expenseDecreased) {
+            computeMaxima();
+        } else {
+            changedCustomers.forEach(this::updateMaxima);
+        }
+        updateDebtOrder(changedCustomers);
+    }
+
+    /*
+        Sprawdza partię przed append, żeby błąd nie zostawił indeksu zmienionego do połowy.
+     */
+    static void checkPurchases(Map<Customer, MutableObjectLongMap<Product>> customersWithProducts) {
+        customersWithProducts.forEach((customer, products) -> {
+            if (toAge.apply(customer) == null || customer.getCash() == null) {
+                throw new OrdersServiceException("Customer %s has no age or cash".formatted(customer));
+            }
+            products.forEachKey(product -> {
+                if (toCategory.apply(product) == null || toPrice.apply(product) == null) {
+                    throw new OrdersServiceException("Product %s has no category or price".formatted(product));
+                }
+            });
+        });
+    }
+
+    private CustomerStats addPurchases(Customer customer, MutableObjectLongMap<Product> products) {
+        int age = toAge.apply(customer);
+        CustomerStats customerStats = customers.computeIfAbsent(customer, newCustomer -> {
+            demographicCube.addCustomer(age);
+            customerBitmaps.addCustomer(customers.size(), age, newCustomer.getCash());
+            CustomerStats newCustomerStats = new CustomerStats(newCustomer, customers.size());
+            customersByPosition.add(newCustomerStats);
+            return newCustomerStats;
+        });
+        customerStats.expenseDecreased = false;
+        products.forEachKeyValue((product, quantity) -> {
+            int ordinal = toCategory.apply(product).ordinal();
+            Money price = prices.computeIfAbsent(product, p -> Money.of(toPrice.apply(p)));
+            customerStats.add(ordinal, product, price, quantity);
+            demographicCube.add(age, ordinal, price, quantity);
+            customerBitmaps.addCategory(customerStats.position, ordinal);
+            categories[ordinal].add(product, price, quantity);
+        });
+        return customerStats;
+    }
+
+    /*
+        Klucze (saldo, pozycja) wszystkich klientów w kolejności DEBT_ORDER. Po partii
+        wyrzucamy stare klucze zmienionych klientów i scalamy ich nowe - O(N + k log k)
+        dla k zmienionych klientów zamiast sortowania całości.
+     */
+    private void updateDebtOrder(List<CustomerStats> changedCustomers) {
+        BitSet changed = new BitSet(customersByPosition.size());
+        changedCustomers.forEach(customerStats -> changed.set(customerStats.position));
+        CustomerDebtAt[] changedDebts = changedCustomers.stream()
+                .map(customerStats -> new CustomerDebtAt(customerStats.debt(), customerStats.position))
+                .sorted(DEBT_ORDER)
+                .toArray(CustomerDebtAt[]::new);
+        CustomerDebtAt[] merged = new CustomerDebtAt[customersByPosition.size()];
+        int unchanged = 0;
+        int added = 0;
+        int size = 0;
+        while (unchanged < debtOrder.length || added < changedDebts.length) {
+            if (unchanged < debtOrder.length && changed.get(debtOrder[unchanged].position)) {
+                unchanged++;
+            } else if (added == changedDebts.length
+                    || unchanged < debtOrder.length && DEBT_ORDER.compare(debtOrder[unchanged], changedDebts[added]) < 0) {
+                merged[size++] = debtOrder[unchanged++];
+            } else {
+                merged[size++] = changedDebts[added++];
+            }
+        }
+        debtOrder = merged;
+    }
+
+    private void computeMaxima() {
+        maxExpense = null;
+        customersWithMaxExpense.clear();
+        Arrays.fill(customersWithMaxExpenseOnCategory, null);
+        Arrays.fill(customersWithMaxQuantityOfCategory, null);
+        customers.values().forEach(this::updateMaxima);
+    }
+
+    private void updateMaxima(CustomerStats customerStats) {
+        int comparison = maxExpense == null ? 1 : customerStats.expense.compareTo(maxExpense);
+        if (comparison > 0) {
+            maxExpense = customerStats.expense.copy();
+            customersWithMaxExpense.clear();
+        }
+        if (comparison >= 0) {
+            customersWithMaxExpense.add(customerStats.customer);
+        }
+        for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+            CustomerStats maxExpenseOnCategory = customersWithMaxExpenseOnCategory[ordinal];
+            if (maxExpenseOnCategory == null
+                    || customerStats.expenses[ordinal].compareTo(maxExpenseOnCategory.expenses[ordinal]) > 0) {
+                customersWithMaxExpenseOnCategory[ordinal] = customerStats;
+            }
+            CustomerStats maxQuantityOfCategory = customersWithMaxQuantityOfCategory[ordinal];
+            if (maxQuantityOfCategory == null
+                    || customerStats.quantities[ordinal] > maxQuantityOfCategory.quantities[ordinal]) {
+                customersWithMaxQuantityOfCategory[ordinal] = customerStats;
+            }
+        }
+    }
+
+    List<Customer> customersWithMaxExpense() {
+        if (customersWithMaxExpense.isEmpty()) {
+            throw new NoSuchElementException("No value present");
+        }
+        return new ArrayList<>(customersWithMaxExpense);
+    }
+
+    Customer customerWithMaxExpenseOnCategory(Category category) {
+        return customerOf(customersWithMaxExpenseOnCategory[category.ordinal()]);
+    }
+
+    Customer customerWithMaxQuantityOfCategory(Category category) {
+        return customerOf(customersWithMaxQuantityOfCategory[category.ordinal()]);
+    }
+
+    private static Customer customerOf(CustomerStats customerStats) {
+        return customerStats == null ? null : customerStats.customer;
+    }
+
+    Map<Integer, List<Category>> mostPopularCategoriesByAge() {
+        return demographicCube.getMostPopularCategoriesByBand();
+    }
+
+    Map<Integer, Category> popularCategoryByAge() {
+        return firstCategories(mostPopularCategoriesByAge());
+    }
+
+    private static Map<Integer, Category> firstCategories(Map<Integer, List<Category>> categoriesByAge) {
+        Map<Integer, Category> popularCategories = new HashMap<>();
+        categoriesByAge.forEach((age, categories) -> popularCategories.put(age, categories.get(0)));
+        return popularCategories;
+    }
+
+    /*
+        Klienci wybrani filtrem, w kolejności dodania. Wynik trzeba wykorzystać pod tą
+        samą blokadą odczytu - zapytania czytają bieżące sumy klientów.
+     */
+    Selection select(CustomerFilter filter) {
+        CompressedBitmap selected = filter.select(customerBitmaps);
+        List<CustomerStats> selectedCustomers = new ArrayList<>(selected.cardinality());
+        selected.forEach(position -> selectedCustomers.add(customersByPosition.get(position)));
+        return new Selection(selectedCustomers);
+    }
+
+    /*
+        Kopia kostki wieku - zapytania na niej nie wymagają blokady serwisu.
+     */
+    DemographicCube demographicCube(int bandWidth) {
+        return demographicCube.rollUp(bandWidth);
+    }
+
+    Map<Category, BigDecimal> averagePrices() {
+        Map<Category, BigDecimal> averagePrices = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            CategoryStats categoryStats = categories[category.ordinal()];
+            if (categoryStats.quantity > 0) {
+                averagePrices.put(category, averagePrice(categoryStats.expense, categoryStats.quantity));
+            }
+        }
+        return averagePrices;
+    }
+
+    private static BigDecimal averagePrice(MoneySum expense, long quantity) {
+        return expense.toBigDecimal().divide(BigDecimal.valueOf(quantity), MathContext.DECIMAL128);
+    }
+
+    Map<Category, Product> productsWithMaxPrice() {
+        Map<Category, Product> products = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            CategoryStats categoryStats = categories[category.ordinal()];
+            if (categoryStats.maxPriceProduct != null) {
+                products.put(category, categoryStats.maxPriceProduct);
+            }
+        }
+        return products;
+    }
+
+    Map<Category, Product> productsWithMinPrice() {
+        Map<Category, Product> products = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            CategoryStats categoryStats = categories[category.ordinal()];
+            if (categoryStats.minPriceProduct != null) {
+                products.put(category, categoryStats.minPriceProduct);
+            }
+        }
+        return products;
+    }
+
+    List<Customer> customersRankedByExpense(int offset, int limit) {
+        return topCustomers(offset, limit, EXPENSE_ORDER, customerStats -> true);
+    }
+
+    List<Customer> topCustomersByExpenseOnCategory(Category category, int limit) {
+        return topCustomers(0, limit, categoryExpenseOrder(category.ordinal()), spentOn(category.ordinal()));
+    }
+
+    List<Customer> topCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+        return topCustomers(0, limit, EXPENSE_ORDER, ageBetween(minAge, maxAge));
+    }
+
+    /*
+        Ranking razem z sumami wydatków, z których da się scalić rankingi kilku
+        części danych. category == null - wydatki ze wszystkich kategorii.
+     */
+    List<CustomerExpense> topExpenses(Category category, int minAge, int maxAge, int offset, int limit) {
+        Comparator<CustomerStats> order = category == null ? EXPENSE_ORDER : categoryExpenseOrder(category.ordinal());
+        Predicate<CustomerStats> filter = category == null ? ageBetween(minAge, maxAge) : ageBetween(minAge, maxAge).and(spentOn(category.ordinal()));
+        return rank(offset, limit, order, filter).stream()
+                .map(customerStats -> new CustomerExpense(customerStats.customer, (category == null
+                        ? customerStats.expense
+                        : customerStats.expenses[category.ordinal()]).toBigDecimal()))
+                .toList();
+    }
+
+    private static Comparator<CustomerStats> categoryExpenseOrder(int ordinal) {
+        return Comparator
+                .comparing((CustomerStats customerStats) -> customerStats.expenses[ordinal]).reversed()
+                .thenComparingInt(customerStats -> customerStats.position);
+    }
+
+    /*
+        Ranking kategorii obejmuje tylko klientów, którzy coś w niej wydali.
+     */
+    private static Predicate<CustomerStats> spentOn(int ordinal) {
+        return customerStats -> customerStats.expenses[ordinal].signum() > 0;
+    }
+
+    private static Predicate<CustomerStats> ageBetween(int minAge, int maxAge) {
+        return customerStats -> {
+            int age = toAge.apply(customerStats.customer);
+            return age >= minAge && age <= maxAge;
+        };
+    }
+
+    private List<Customer> topCustomers(int offset, int limit, Comparator<CustomerStats> order, Predicate<CustomerStats> filter) {
+        return customersOf(rank(offset, limit, order, filter));
+    }
+
+    private static List<Customer> customersOf(List<CustomerStats> customersStats) {
+        return customersStats.stream()
+                .map(customerStats -> customerStats.customer)
+                .toList();
+    }
+
+    /*
+        Kopiec trzyma offset + limit najlepszych klientów, więc strona rankingu
+        nie wymaga sortowania wszystkich sum.
+     */
+    private List<CustomerStats> rank(int offset, int limit, Comparator<CustomerStats> order, Predicate<CustomerStats> filter) {
+        return rank(customers.values(), offset, limit, order, filter);
+    }
+
+    private static List<CustomerStats> rank(Iterable<CustomerStats> candidates, int offset, int limit,
+                                            Comparator<CustomerStats> order, Predicate<CustomerStats> filter) {
+        TopK<CustomerStats> topCustomers = new TopK<>((int) Math.min(Integer.MAX_VALUE, (long) offset + limit), order);
+        for (CustomerStats customerStats : candidates) {
+            if (filter.test(customerStats)) {
+                topCustomers.offer(customerStats);
+            }
+        }
+        List<CustomerStats> ranking = topCustomers.toList();
+        return ranking.subList(Math.min(offset, ranking.size()), ranking.size());
+    }
+
+    PartialReport partialReport() {
+        Map<Category, Customer> customersWithMaxExpenseOnCategory = new EnumMap<>(Category.class);
+        Map<Category, BigDecimal> maxExpensesOnCategory = new EnumMap<>(Category.class);
+        Map<Category, Customer> customersWithMaxQuantityOfCategory = new EnumMap<>(Category.class);
+        Map<Category, Long> maxQuantitiesOfCategory = new EnumMap<>(Category.class);
+        Map<Category, BigDecimal> categoriesExpenses = new EnumMap<>(Category.class);
+        Map<Category, Long> categoriesQuantities = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            int ordinal = category.ordinal();
+            CustomerStats maxExpenseOnCategory = this.customersWithMaxExpenseOnCategory[ordinal];
+            if (maxExpenseOnCategory != null) {
+                customersWithMaxExpenseOnCategory.put(category, maxExpenseOnCategory.customer);
+                maxExpensesOnCategory.put(category, maxExpenseOnCategory.expenses[ordinal].toBigDecimal());
+            }
+            CustomerStats maxQuantityOfCategory = this.customersWithMaxQuantityOfCategory[ordinal];
+            if (maxQuantityOfCategory != null) {
+                customersWithMaxQuantityOfCategory.put(category, maxQuantityOfCategory.customer);
+                maxQuantitiesOfCategory.put(category, maxQuantityOfCategory.quantities[ordinal]);
+            }
+            categoriesExpenses.put(category, categories[ordinal].expense.toBigDecimal());
+            categoriesQuantities.put(category, categories[ordinal].quantity);
+        }
+        Map<Integer, long[]> categoriesQuantitiesByAge = new HashMap<>();
+        demographicCube.getQuantitiesByBand().forEach((age, quantities) -> {
+            long[] categoriesQuantitiesOfAge = new long[CATEGORIES.length];
+            quantities.forEach((category, quantity) -> categoriesQuantitiesOfAge[category.ordinal()] = quantity);
+            categoriesQuantitiesByAge.put(age, categoriesQuantitiesOfAge);
+        });
+        return PartialReport.builder()
+                .maxExpense(maxExpense == null ? null : maxExpense.toBigDecimal())
+                .customersWithMaxExpense(new ArrayList<>(customersWithMaxExpense))
+                .customersWithMaxExpenseOnCategory(customersWithMaxExpenseOnCategory)
+                .maxExpensesOnCategory(maxExpensesOnCategory)
+                .customersWithMaxQuantityOfCategory(customersWithMaxQuantityOfCategory)
+                .maxQuantitiesOfCategory(maxQuantitiesOfCategory)
+                .categoriesQuantitiesByAge(categoriesQuantitiesByAge)
+                .categoriesExpenses(categoriesExpenses)
+                .categoriesQuantities(categoriesQuantities)
+                .productsWithMaxPrice(productsWithMaxPrice())
+                .productsWithMinPrice(productsWithMinPrice())
+                .build();
+    }
+
+    Map<Customer, BigDecimal> debts() {
+        Map<Customer, BigDecimal> debts = new HashMap<>();
+        customers.forEach((customer, customerStats) -> debts.put(customer, customerStats.debt()));
+        return debts;
+    }
+
+    int customersCount() {
+        return customersByPosition.size();
+    }
+
+    void forEachDebt(boolean debtorsOnly, BiConsumer<Customer, BigDecimal> consumer) {
+        forEachDebt(0, customersByPosition.size(), debtorsOnly, consumer);
+    }
+
+    List<CustomerDebt> debts(int fromPosition, int toPosition, boolean debtorsOnly) {
+        List<CustomerDebt> debts = new ArrayList<>();
+        forEachDebt(fromPosition, toPosition, debtorsOnly, (customer, debt) -> debts.add(new CustomerDebt(customer, debt)));
+        return debts;
+    }
+
+    private void forEachDebt(int fromPosition, int toPosition, boolean debtorsOnly, BiConsumer<Customer, BigDecimal> consumer) {
+        for (int position = fromPosition; position < Math.min(toPosition, customersByPosition.size()); position++) {
+            CustomerStats customerStats = customersByPosition.get(position);
+            BigDecimal debt = customerStats.debt();
+            if (!debtorsOnly || debt.signum() < 0) {
+                consumer.accept(customerStats.customer, debt);
+            }
+        }
+    }
+
+    /*
+        Stronicowanie po kluczu (saldo, pozycja klienta): kursor to klucz ostatniego
+        zwróconego klienta, a strona to limit kolejnych kluczy z debtOrder za kursorem.
+        Kursor odnajdujemy wyszukiwaniem binarnym, więc strona kosztuje O(log N + limit).
+        Dłużnicy (saldo < 0) są na początku porządku - debtorsOnly kończy na pierwszym
+        nieujemnym saldzie.
+     */
+    DebtsPage debtsPage(String cursor, int limit, boolean debtorsOnly) {
+        int from = 0;
+        if (cursor != null) {
+            int found = Arrays.binarySearch(debtOrder, CustomerDebtAt.parse(cursor), DEBT_ORDER);
+            from = found >= 0 ? found + 1 : -found - 1;
+        }
+        int to = (int) Math.min(debtOrder.length, (long) from + limit);
+        List<CustomerDebt> debts = new ArrayList<>(Math.max(0, to - from));
+        CustomerDebtAt last = null;
+        for (int index = from; index < to; index++) {
+            CustomerDebtAt customerDebt = debtOrder[index];
+            if (debtorsOnly && customerDebt.debt.signum() >= 0) {
+                break;
+            }
+            debts.add(new CustomerDebt(customersByPosition.get(customerDebt.position).customer, customerDebt.debt));
+            last = customerDebt;
+        }
+        return new DebtsPage(debts, debts.size() < limit || last == null ? null : last.toCursor());
+    }
+
+    private record CustomerDebtAt(BigDecimal debt, int position) {
+
+        private String toCursor() {
+            return "%s:%d".formatted(debt.toPlainString(), position);
+        }
+
+        private static CustomerDebtAt parse(String cursor) {
+            int separator = cursor.lastIndexOf(':');
+            try {
+                return new CustomerDebtAt(new BigDecimal(cursor.substring(0, separator)), Integer.parseInt(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new OrdersServiceException("Invalid cursor %s".formatted(cursor));
+            }
+        }
+    }
+
+    /*
+        Zapytania OrdersService ograniczone do wybranych klientów. Wyniki są składane
+        wprost z sum trzymanych per klient - koszt zależy od liczby wybranych klientów,
+        a nie od liczby ich zakupów. Remisy rozstrzyga pozycja klienta, jak w całym indeksie.
+     */
+    final class Selection {
+
+        private final List<CustomerStats> selected;
+
+        private Selection(List<CustomerStats> selected) {
+            this.selected = selected;
+        }
+
+        List<Customer> customersWithMaxExpense() {
+            MoneySum maxExpense = null;
+            List<Customer> customersWithMaxExpense = new ArrayList<>();
+            for (CustomerStats customerStats : selected) {
+                int comparison = maxExpense == null ? 1 : customerStats.expense.compareTo(maxExpense);
+                if (comparison > 0) {
+                    maxExpense = customerStats.expense;
+                    customersWithMaxExpense.clear();
+                }
+                if (comparison >= 0) {
+                    customersWithMaxExpense.add(customerStats.customer);
+                }
+            }
+            if (customersWithMaxExpense.isEmpty()) {
+                throw new NoSuchElementException("No value present");
+            }
+            return customersWithMaxExpense;
+        }
+
+        Customer customerWithMaxExpenseOnCategory(Category category) {
+            int ordinal = category.ordinal();
+            CustomerStats maxExpenseOnCategory = null;
+            for (CustomerStats customerStats : selected) {
+                if (maxExpenseOnCategory == null
+                        || customerStats.expenses[ordinal].compareTo(maxExpenseOnCategory.expenses[ordinal]) > 0) {
+                    maxExpenseOnCategory = customerStats;
+                }
+            }
+            return customerOf(maxExpenseOnCategory);
+        }
+
+        Map<Category, Customer> customersWithMaxQuantityOfCategory() {
+            CustomerStats[] maxQuantitiesOfCategory = new CustomerStats[CATEGORIES.length];
+            for (CustomerStats customerStats : selected) {
+                for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+                    if (maxQuantitiesOfCategory[ordinal] == null
+                            || customerStats.quantities[ordinal] > maxQuantitiesOfCategory[ordinal].quantities[ordinal]) {
+                        maxQuantitiesOfCategory[ordinal] = customerStats;
+                    }
+                }
+            }
+            Map<Category, Customer> customersWithMaxQuantity = new EnumMap<>(Category.class);
+            for (Category category : CATEGORIES) {
+                customersWithMaxQuantity.put(category, customerOf(maxQuantitiesOfCategory[category.ordinal()]));
+            }
+            return customersWithMaxQuantity;
+        }
+
+        Map<Integer, List<Category>> mostPopularCategoriesByAge() {
+            DemographicCube selectedCube = new DemographicCube(1);
+            for (CustomerStats customerStats : selected) {
+                selectedCube.addCustomer(toAge.apply(customerStats.customer), customerStats.quantities, customerStats.expenses);
+            }
+            return selectedCube.getMostPopularCategoriesByBand();
+        }
+
+        Map<Integer, Category> popularCategoryByAge() {
+            return firstCategories(mostPopularCategoriesByAge());
+        }
+
+        Map<Category, BigDecimal> averagePrices() {
+            MoneySum[] expenses = new MoneySum[CATEGORIES.length];
+            long[] quantities = new long[CATEGORIES.length];
+            Arrays.setAll(expenses, ordinal -> new MoneySum());
+            for (CustomerStats customerStats : selected) {
+                for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+                    expenses[ordinal].add(customerStats.expenses[ordinal]);
+                    quantities[ordinal] += customerStats.quantities[ordinal];
+                }
+            }
+            Map<Category, BigDecimal> averagePrices = new EnumMap<>(Category.class);
+            for (Category category : CATEGORIES) {
+                if (quantities[category.ordinal()] > 0) {
+                    averagePrices.put(category, averagePrice(expenses[category.ordinal()], quantities[category.ordinal()]));
+                }
+            }
+            return averagePrices;
+        }
+
+        Map<Category, Product> productsWithMaxPrice() {
+            return productsWithExtremePrice(customerStats -> customerStats.maxPriceProducts, customerStats -> customerStats.maxPrices, 1);
+        }
+
+        Map<Category, Product> productsWithMinPrice() {
+            return productsWithExtremePrice(customerStats -> customerStats.minPriceProducts, customerStats -> customerStats.minPrices, -1);
+        }
+
+        /*
+            direction 1 - najdroższe produkty, -1 - najtańsze.
+         */
+        private Map<Category, Product> productsWithExtremePrice(Function<CustomerStats, Product[]> products,
+                                                                Function<CustomerStats, Money[]> prices, int direction) {
+            Product[] extremeProducts = new Product[CATEGORIES.length];
+            Money[] extremePrices = new Money[CATEGORIES.length];
+            for (CustomerStats customerStats : selected) {
+                for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+                    Money price = prices.apply(customerStats)[ordinal];
+                    if (price != null && (extremePrices[ordinal] == null || price.compareTo(extremePrices[ordinal]) * direction > 0)) {
+                        extremeProducts[ordinal] = products.apply(customerStats)[ordinal];
+                        extremePrices[ordinal] = price;
+                    }
+                }
+            }
+            Map<Category, Product> extremePriceProducts = new EnumMap<>(Category.class);
+            for (Category category : CATEGORIES) {
+                if (extremeProducts[category.ordinal()] != null) {
+                    extremePriceProducts.put(category, extremeProducts[category.ordinal()]);
+                }
+            }
+            return extremePriceProducts;
+        }
+
+        Map<Customer, BigDecimal> debts() {
+            Map<Customer, BigDecimal> debts = new HashMap<>();
+            selected.forEach(customerStats -> debts.put(customerStats.customer, customerStats.debt()));
+            return debts;
+        }
+
+        List<Customer> customersRankedByExpense(int offset, int limit) {
+            return customersOf(rank(selected, offset, limit, EXPENSE_ORDER, customerStats -> true));
+        }
+
+        List<Customer> topCustomersByExpenseOnCategory(Category category, int limit) {
+            return customersOf(rank(selected, 0, limit, categoryExpenseOrder(category.ordinal()), spentOn(category.ordinal())));
+        }
+
+        List<Customer> topCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+            return customersOf(rank(selected, 0, limit, EXPENSE_ORDER, ageBetween(minAge, maxAge)));
+        }
+    }
+
+    private static final class CustomerStats {
+        private final Customer customer;
+        private final int position;
+        private final Money cash;
+        private final MoneySum expense = new MoneySum();
+        private final MoneySum[] expenses = new MoneySum[CATEGORIES.length];
+        private final long[] quantities = new long[CATEGORIES.length];
+        private final Product[] maxPriceProducts = new Product[CATEGORIES.length];
+        private final Money[] maxPrices = new Money[CATEGORIES.length];
+        private final Product[] minPriceProducts = new Product[CATEGORIES.length];
+        private final Money[] minPrices = new Money[CATEGORIES.length];
+        private boolean expenseDecreased;
+
+        private CustomerStats(Customer customer, int position) {
+            this.customer = customer;
+            this.position = position;
+            this.cash = Money.of(customer.getCash());
+            Arrays.setAll(expenses, ordinal -> new MoneySum());
+        }
+
+        private BigDecimal debt() {
+            return expense.subtractFrom(cash);
+        }
+
+        private void add(int ordinal, Product product, Money price, long quantity) {
+            expenseDecreased |= price.signum() < 0;
+            expense.add(price, quantity);
+            expenses[ordinal].add(price, quantity);
+            quantities[ordinal] += quantity;
+            if (maxPrices[ordinal] == null || price.compareTo(maxPrices[ordinal]) > 0) {
+                maxPriceProducts[ordinal] = product;
+                maxPrices[ordinal] = price;
+            }
+            if (minPrices[ordinal] == null || price.compareTo(minPrices[ordinal]) < 0) {
+                minPriceProducts[ordinal] = product;
+                minPrices[ordinal] = price;
+            }
+        }
+    }
+
+    private static final class CategoryStats {
+        private final MoneySum expense = new MoneySum();
+        private long quantity;
+        private Product maxPriceProduct;
+        private Money maxPrice;
+        private Product minPriceProduct;
+        private Money minPrice;
+
+        private void add(Product product, Money price, long quantity) {
+            expense.add(price, quantity);
+            this.quantity += quantity;
+            if (maxPrice == null || price.compareTo(maxPrice) > 0) {
+                maxPriceProduct = product;
+                maxPrice = price;
+            }
+            if (minPrice == null || price.compareTo(minPrice) < 0) {
+                minPriceProduct = product;
+                minPrice = price;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.app.service;
+
+import com.app.persistence.converter.CustomerWithProductsConverter;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.CustomerRegistry;
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
+import com.app.persistence.model.ProductCatalog;
+import com.app.persistence.snapshot.OrdersSnapshot;
+import com.app.persistence.snapshot.SnapshotReader;
+import com.app.persistence.validator.ValidationStage;
+import com.app.service.exception.OrdersServiceException;
+import com.app.service.metrics.OrdersMetrics;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Klienci są w wynikowej mapie w kolejności pierwszego wystąpienia w plikach (albo
+    w snapshocie) - od tej kolejności zależą pozycje w OrdersIndex, a więc i remisy.
+ */
+class OrdersLoader {
+
+    private final int parallelism;
+    private final ValidationStage validationStage;
+    private final IngestionStats ingestionStats = new IngestionStats();
+    private final CustomerRegistry customerRegistry = new CustomerRegistry();
+    private final ProductCatalog productCatalog = new ProductCatalog();
+
+    OrdersLoader(int parallelism, ValidationStage validationStage) {
+        if (parallelism < 1) {
+            throw new OrdersServiceException("Parallelism has to be >= 1");
+        }
+        if (validationStage == null) {
+            throw new OrdersServiceException("Validation stage is null");
+        }
+        this.parallelism = parallelism;
+        this.validationStage = validationStage;
+    }
+
+    Map<Customer, MutableObjectLongMap<Product>> load(List<String> jsonFilenames) {
+        try {
+            if (parallelism == 1) {
+                Map<Customer, MutableObjectLongMap<Product>> customersWithProducts = new LinkedHashMap<>();
+                jsonFilenames.forEach(filename -> loadFile(filename, customersWithProducts));
+                return customersWithProducts;
+            }
+            return new IngestionPipeline(customerRegistry, productCatalog, validationStage, ingestionStats,
+                    parallelism,
+                    Math.max(1, parallelism / 2),
+                    Math.max(1, parallelism / 2))
+                    .run(jsonFilenames);
+        } finally {
+            validationStage.close();
+        }
+    }
+
+    IngestionStats getIngestionStats() {
+        return ingestionStats;
+    }
+
+    Map<Customer, MutableObjectLongMap<Product>> loadSnapshot(String snapshotFilename) {
+        OrdersSnapshot snapshot;
+        try {
+            snapshot = new SnapshotReader(snapshotFilename).read();
+        } catch (RuntimeException e) {
+            throw new OrdersServiceException("Cannot load snapshot %s: %s".formatted(snapshotFilename, e.getMessage()));
+        }
+        List<Product> products = snapshot.getProducts().stream().map(productCatalog::intern).toList();
+        List<MutableObjectLongMap<Product>> customersProducts = new ArrayList<>(snapshot.getCustomers().size());
+        snapshot.getCustomers().forEach(customer -> customersProducts.add(new ObjectLongHashMap<>()));
+        IntBuffer customerIds = snapshot.getCustomerIds();
+        IntBuffer productIds = snapshot.getProductIds();
+        LongBuffer quantities = snapshot.getQuantities();
+        for (int i = 0; i < snapshot.getLineItemsCount(); i++) {
+            customersProducts.get(customerIds.get(i)).addToValue(products.get(productIds.get(i)), quantities.get(i));
+        }
+        Map<Customer, MutableObjectLongMap<Product>> customersWithProducts = new LinkedHashMap<>();
+        for (int customerId = 0; customerId < customersProducts.size(); customerId++) {
+            customersWithProducts.put(customerRegistry.intern(snapshot.getCustomers().get(customerId)), customersProducts.get(customerId));
+        }
+        return customersWithProducts;
+    }
+
+    private Map<Customer, MutableObjectLongMap<Product>> loadFile(String filename,
+                                                       Map<Customer, MutableObjectLongMap<Product>> customersWithProducts) {
+        OrdersMetrics metrics = OrdersMetrics.global();
+        boolean measured = metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0L;
+        long[] recordsAndRejected = new long[2];
+        try {
+            new CustomerWithProductsConverter(filename, customerRegistry, productCatalog).forEach(customerWithProducts -> {
+                recordsAndRejected[0]++;
+                if (validationStage.accept(filename, customerWithProducts)) {
+                    addPurchases(customersWithProducts, customerWithProducts);
+                } else {
+                    recordsAndRejected[1]++;
+                }
+            });
+        } catch (RuntimeException e) {
+            throw new OrdersServiceException("Cannot load json file %s: %s".formatted(filename, e.getMessage()));
+        }
+        ingestionStats.parsedRecords.add(recordsAndRejected[0]);
+        ingestionStats.validatedRecords.add(recordsAndRejected[0]);
+        ingestionStats.aggregatedRecords.add(recordsAndRejected[0] - recordsAndRejected[1]);
+        if (measured) {
+            metrics.recordFile(filename, System.nanoTime() - start, fileSize(filename), recordsAndRejected[0], recordsAndRejected[1]);
+        }
+        return customersWithProducts;
+    }
+
+    static long fileSize(String filename) {
+        try {
+            return Files.size(Path.of(filename));
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void addPurchases(Map<Customer, MutableObjectLongMap<Product>> customersWithProducts,
+                                     CustomerWithProducts customerWithProducts) {
+        MutableObjectLongMap<Product> products = customersWithProducts
+                .computeIfAbsent(customerWithProducts.getCustomer(), customer -> new ObjectLongHashMap<>());
+        customerWithProducts.getProducts().forEach(product -> products.addToValue(product, 1L));
+    }
+
+    static void merge(Map<Customer, MutableObjectLongMap<Product>> customersWithProducts,
+                      Map<Customer, MutableObjectLongMap<Product>> partial) {
+        partial.forEach((customer, products) -> customersWithProducts.merge(customer, products, (current, added) -> {
+            added.forEachKeyValue(current::addToValue);
+            return current;
+        }));
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.app.service;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.report.OrdersReport;
+import com.app.service.report.ReportQuery;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Zapytania raportowe wspólne dla wszystkich implementacji magazynu zakupów.
+ */
+public interface OrdersQueries {
+
+    List<Customer> getCustomersWithMaxExpense();
+
+    Customer getCustomerWithMaxExpenseOnCategory(Category category);
+
+    Map<Integer, List<Category>> findMostPopularCategoryForAge();
+
+    Map<Integer, Category> getAgesWithPopularCategories();
+
+    Map<Category, BigDecimal> getCategoriesWithAveragePrices();
+
+    Map<Category, Product> getCategoriesAndProductsWithMaxPrice();
+
+    Map<Category, Product> getCategoriesAndProductsWithMinPrice();
+
+    Map<Category, Customer> getCategoriesAndCustomers();
+
+    Map<Customer, BigDecimal> getCustomersAndDebts();
+
+    /*
+        Ranking klientów od największych wydatków. Przy równych wydatkach
+        wyżej jest klient dodany wcześniej.
+     */
+    List<Customer> getCustomersRankedByExpense(int offset, int limit);
+
+    default List<Customer> getTopCustomersByExpense(int limit) {
+        return getCustomersRankedByExpense(0, limit);
+    }
+
+    /*
+        Ranking klientów z dodatnimi wydatkami w danej kategorii.
+     */
+    List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit);
+
+    /*
+        Ranking ograniczony do klientów w wieku od minAge do maxAge włącznie.
+     */
+    List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit);
+
+    /*
+        Numer wersji danych - zmienia się przy każdym dopisaniu zakupów.
+     */
+    long getDataVersion();
+
+    default OrdersReport report(Set<ReportQuery> queries) {
+        return OrdersReport.of(this, queries);
+    }
+
+}
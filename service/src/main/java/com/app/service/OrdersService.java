@@ -1,85 +1,260 @@
 package com.app.service;
 
 
-import com.app.persistence.converter.CustomerWithProductsConverter;
+import com.app.persistence.converter.JsonStreamWriter;
 import com.app.persistence.model.Category;
 import com.app.persistence.model.Customer;
 import com.app.persistence.model.CustomerWithProducts;
 import com.app.persistence.model.Product;
-import com.app.persistence.validator.CustomerWithProductsValidator;
+import com.app.persistence.snapshot.OrdersSnapshot;
+import com.app.persistence.snapshot.SnapshotWriter;
+import com.app.persistence.validator.ValidationStage;
 import com.app.service.exception.OrdersServiceException;
-import org.eclipse.collections.impl.collector.Collectors2;
+import com.app.service.metrics.OrdersMetrics;
+import com.app.service.report.OrdersReport;
+import com.app.service.report.PartialReport;
+import com.app.service.report.ReportQuery;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+import org.eclipse.collections.api.tuple.primitive.ObjectLongPair;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
 
 import java.math.BigDecimal;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-import static com.app.persistence.model.CustomerUtils.toAge;
-import static com.app.persistence.model.ProductUtils.toCategory;
-import static com.app.persistence.model.ProductUtils.toPrice;
-import static java.util.stream.Collectors.*;
+public class OrdersService implements OrdersQueries {
 
-public class OrdersService {
+    private static final int STREAM_CHUNK = 4_096;
 
-    private final Map<Customer, Map<Product, Long>> customersWithProducts;
+    private final OrdersLoader ordersLoader;
+    private final Map<Customer, MutableObjectLongMap<Product>> customersWithProducts;
+    private final OrdersIndex ordersIndex;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long dataVersion;
 
     public OrdersService(List<String> jsonFilenames) {
-        this.customersWithProducts = init(jsonFilenames);
-    }
-
-    private Map<Customer, Map<Product, Long>> init(List<String> jsonFilenames) {
-        CustomerWithProductsValidator customerWithProductsValidator = new CustomerWithProductsValidator();
-        List<CustomerWithProducts> customerWithProducts = jsonFilenames
-                .stream()
-                .flatMap(filename -> new CustomerWithProductsConverter(filename)
-                        .fromJson()
-                        .orElseThrow(() -> new OrdersServiceException("Cannot open json file %s".formatted(filename)))
-                        .stream())
-                .peek(customerWithProductsValidator::validate)
-                .toList();
-
-        return customerWithProducts
-                .stream()
-                .collect(groupingBy(
-                        CustomerWithProducts::getCustomer,
-                        Collectors.collectingAndThen(
-                                Collectors.flatMapping(cwp -> cwp.getProducts().stream(), toList()),
-                                products -> products
-                                        .stream()
-                                        .collect(groupingBy(Function.identity(), counting()))
-                        )
-                ));
+        this(jsonFilenames, 1);
+    }
+
+    public OrdersService(List<String> jsonFilenames, int parallelism) {
+        this(jsonFilenames, parallelism, ValidationStage.failFast());
     }
 
     /*
-        Wyznacz klienta, który zapłacił najwięcej za wszystkie zakupy.
-    */
-    public List<Customer> getCustomersWithMaxExpense() {
-        return customersWithProducts
-                .entrySet()
-                .stream()
-                .collect(Collectors.groupingBy(
-                        e -> totalPrice(e.getValue()),
-                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())
-                ))
-                .entrySet()
-                .stream()
-                .max(Map.Entry.comparingByKey())
-                .orElseThrow()
-                .getValue();
+        Błędne rekordy są obsługiwane według trybu validationStage: przerywają
+        ładowanie, trafiają do raportu albo do pliku kwarantanny.
+     */
+    public OrdersService(List<String> jsonFilenames, int parallelism, ValidationStage validationStage) {
+        this(new OrdersLoader(parallelism, validationStage), jsonFilenames);
+    }
+
+    private OrdersService(OrdersLoader ordersLoader, List<String> jsonFilenames) {
+        this(ordersLoader, ordersLoader.load(jsonFilenames));
+    }
+
+    private OrdersService(OrdersLoader ordersLoader, Map<Customer, MutableObjectLongMap<Product>> customersWithProducts) {
+        this.ordersLoader = ordersLoader;
+        this.customersWithProducts = customersWithProducts;
+        this.ordersIndex = timeIndexBuild(() -> new OrdersIndex(customersWithProducts));
+    }
+
+    public static OrdersService fromSnapshot(String snapshotFilename) {
+        return fromSnapshot(snapshotFilename, 1);
+    }
+
+    public static OrdersService fromSnapshot(String snapshotFilename, int parallelism) {
+        OrdersLoader ordersLoader = new OrdersLoader(parallelism, ValidationStage.failFast());
+        return new OrdersService(ordersLoader, ordersLoader.loadSnapshot(snapshotFilename));
+    }
+
+    /*
+        Zapisuje aktualny stan do binarnego snapshotu, z którego fromSnapshot
+        odtwarza serwis bez ponownego parsowania plików JSON.
+     */
+    public void saveSnapshot(String snapshotFilename) {
+        OrdersSnapshot snapshot = read(this::toSnapshot);
+        try {
+            new SnapshotWriter(snapshotFilename).write(snapshot);
+        } catch (RuntimeException e) {
+            throw new OrdersServiceException("Cannot save snapshot %s: %s".formatted(snapshotFilename, e.getMessage()));
+        }
+    }
+
+    /*
+        Eksportuje scalone zakupy - jeden rekord na klienta - do pliku JSON albo
+        NDJSON (także .gz). Pod blokadą odczytu robimy tylko kopię pozycji (klient,
+        produkt, ilość); zapis na dysk idzie już bez blokady, więc nie wstrzymuje append.
+     */
+    public long export(String jsonFilename) {
+        List<CustomerWithProducts> customers = read(() -> {
+            List<CustomerWithProducts> snapshot = new ArrayList<>(customersWithProducts.size());
+            customersWithProducts.forEach((customer, products) -> snapshot.add(toCustomerWithProducts(customer, products)));
+            return snapshot;
+        });
+        try (JsonStreamWriter<CustomerWithProducts> writer = new JsonStreamWriter<>(jsonFilename, CustomerWithProducts.class)) {
+            customers.forEach(writer::write);
+            return writer.getCount();
+        } catch (RuntimeException e) {
+            throw new OrdersServiceException("Cannot export orders to %s: %s".formatted(jsonFilename, e.getMessage()));
+        }
+    }
+
+    private static CustomerWithProducts toCustomerWithProducts(Customer customer, MutableObjectLongMap<Product> products) {
+        return CustomerWithProducts.builder()
+                .customer(customer)
+                .products(new RepeatedProducts(products))
+                .build();
+    }
+
+    /*
+        Lista zakupów, w której produkt występuje tyle razy, ile sztuk kupiono - bez
+        tworzenia tych powtórzeń: trzymamy produkty i narastające sumy ilości.
+     */
+    private static final class RepeatedProducts extends AbstractList<Product> {
+
+        private final Product[] products;
+        private final long[] ends;
+
+        private RepeatedProducts(MutableObjectLongMap<Product> quantities) {
+            this.products = new Product[quantities.size()];
+            this.ends = new long[quantities.size()];
+            long[] end = {0L};
+            int[] index = {0};
+            quantities.forEachKeyValue((product, quantity) -> {
+                end[0] += quantity;
+                products[index[0]] = product;
+                ends[index[0]++] = end[0];
+            });
+            if (end[0] > Integer.MAX_VALUE) {
+                throw new OrdersServiceException("Too many purchases to export: %d".formatted(end[0]));
+            }
+        }
+
+        @Override
+        public Product get(int index) {
+            Objects.checkIndex(index, size());
+            int position = Arrays.binarySearch(ends, index + 1L);
+            return products[position >= 0 ? position : -position - 1];
+        }
+
+        @Override
+        public int size() {
+            return ends.length == 0 ? 0 : (int) ends[ends.length - 1];
+        }
+    }
+
+    private OrdersSnapshot toSnapshot() {
+        int lineItemsCount = customersWithProducts.values().stream().mapToInt(MutableObjectLongMap::size).sum();
+        List<Customer> customers = new ArrayList<>(customersWithProducts.size());
+        List<Product> products = new ArrayList<>();
+        MutableObjectIntMap<Product> productIds = new ObjectIntHashMap<>();
+        int[] customerIdsColumn = new int[lineItemsCount];
+        int[] productIdsColumn = new int[lineItemsCount];
+        long[] quantitiesColumn = new long[lineItemsCount];
+        int lineItem = 0;
+        for (Map.Entry<Customer, MutableObjectLongMap<Product>> entry : customersWithProducts.entrySet()) {
+            int customerId = customers.size();
+            customers.add(entry.getKey());
+            for (ObjectLongPair<Product> productWithQuantity : entry.getValue().keyValuesView()) {
+                customerIdsColumn[lineItem] = customerId;
+                productIdsColumn[lineItem] = productIds.getIfAbsentPutWithKey(productWithQuantity.getOne(), product -> {
+                    products.add(product);
+                    return products.size() - 1;
+                });
+                quantitiesColumn[lineItem] = productWithQuantity.getTwo();
+                lineItem++;
+            }
+        }
+        return OrdersSnapshot.builder()
+                .customers(customers)
+                .products(products)
+                .customerIds(IntBuffer.wrap(customerIdsColumn))
+                .productIds(IntBuffer.wrap(productIdsColumn))
+                .quantities(LongBuffer.wrap(quantitiesColumn))
+                .build();
+    }
+
+    /*
+        Dopisuje zakupy z nowych plików do już załadowanych danych. Pliki są parsowane
+        i sprawdzane poza blokadą, a zapytania w trakcie dopisywania widzą stan sprzed
+        albo po partii. Wersja danych rośnie tylko po udanym dopisaniu.
+     */
+    public void append(List<String> jsonFilenames) {
+        Map<Customer, MutableObjectLongMap<Product>> newCustomersWithProducts = ordersLoader.load(jsonFilenames);
+        OrdersIndex.checkPurchases(newCustomersWithProducts);
+        lock.writeLock().lock();
+        try {
+            timeIndexBuild(() -> {
+                ordersIndex.append(newCustomersWithProducts);
+                return ordersIndex;
+            });
+            OrdersLoader.merge(customersWithProducts, newCustomersWithProducts);
+            dataVersion++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+        Wszystkie zapytania liczone pod jedną blokadą odczytu, więc raport
+        pochodzi z jednego stanu danych nawet przy równoległym append.
+     */
+    @Override
+    public OrdersReport report(Set<ReportQuery> queries) {
+        return read("report", () -> OrdersQueries.super.report(queries));
     }
 
-    private BigDecimal totalPrice(Map<Product, Long> countedProducts) {
-        return countedProducts
-                .entrySet()
-                .stream()
-                .map(e -> toPrice.apply(e.getKey()).multiply(BigDecimal.valueOf(e.getValue())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public IngestionStats getIngestionStats() {
+        return ordersLoader.getIngestionStats();
     }
 
-    private static BigDecimal getTotalPrice(Map.Entry<Product, Long> entry) {
-        return toPrice.apply(entry.getKey()).multiply(BigDecimal.valueOf(entry.getValue()));
+    @Override
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    private static OrdersIndex timeIndexBuild(Supplier<OrdersIndex> build) {
+        OrdersMetrics metrics = OrdersMetrics.global();
+        if (!metrics.isEnabled()) {
+            return build.get();
+        }
+        long start = System.nanoTime();
+        OrdersIndex index = build.get();
+        metrics.recordIndexBuild(System.nanoTime() - start);
+        return index;
+    }
+
+    private <T> T read(String queryName, Supplier<T> query) {
+        OrdersMetrics metrics = OrdersMetrics.global();
+        return metrics.isEnabled() ? metrics.timeQuery(queryName, () -> read(query)) : read(query);
+    }
+
+    private <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+        Wyznacz klienta, który zapłacił najwięcej za wszystkie zakupy.
+    */
+    @Override
+    public List<Customer> getCustomersWithMaxExpense() {
+        return read("getCustomersWithMaxExpense", ordersIndex::customersWithMaxExpense);
     }
 
     /*
@@ -87,199 +262,67 @@ public class OrdersService {
       za zakupy z wybranej kategorii. Nazwę kategorii przekaż jako
       argument funkcji.
   */
+    @Override
     public Customer getCustomerWithMaxExpenseOnCategory(Category category) {
         if (category == null) {
             throw new OrdersServiceException("Category is null");
         }
-        return customersWithProducts.entrySet()
-                .stream()
-                .max(Comparator.comparing(entry -> getExpense(entry.getValue(), category)))
-                .map(Map.Entry::getKey)
-                .orElseThrow();
-    }
-
-    private static BigDecimal getExpense(Map<Product, Long> products, Category category) {
-        return products.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey().hasCategory(category))
-                .map(OrdersService::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Optional.ofNullable(read("getCustomerWithMaxExpenseOnCategory", () -> ordersIndex.customerWithMaxExpenseOnCategory(category))).orElseThrow();
     }
 
     /*
        Wykonaj zestawienie (mapę), w którym pokażesz wiek klientów oraz
        kategorie produktów, które najchętniej w tym wieku kupowano.
     */
+    @Override
     public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
-        return customersWithProducts
-                .entrySet()
-                .stream()
-                .collect(Collectors.groupingBy(
-                        e -> toAge.apply(e.getKey()),
-                        // [Integer, Map[Cutomer, Map[Product, Long]]]
-                        Collectors.collectingAndThen(
-                                // ROBIMY LISTE PRODUKTOW DLA DANEGO WIEKU
-                                Collectors.flatMapping(ee -> ee.getValue()
-                                        .entrySet()
-                                        .stream()
-                                        .flatMap(eee -> Collections.nCopies(eee.getValue().intValue(), eee.getKey()).stream()), Collectors.toList()),
-                                // GRUPUJEMY OTRZYMANA WYZEJ LISTE PRODUKTOW PO KATEGORII I WYCIAGAMY KATEGORIE NAJPOPULARNIEJSZA - MOZE BYC
-                                // ICH KILKA
-                                products -> products
-                                        .stream()
-                                        .collect(Collectors.groupingBy(toCategory, counting()))
-                                        .entrySet()
-                                        .stream()
-                                        .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, toList())))
-                                        .entrySet()
-                                        .stream()
-                                        .max(Map.Entry.comparingByKey())
-                                        .orElseThrow()
-                                        .getValue()
-                        )
-                ));
+        return read("findMostPopularCategoryForAge", ordersIndex::mostPopularCategoriesByAge);
     }
     // --- KM ---
 
+    @Override
     public Map<Integer, Category> getAgesWithPopularCategories() {
-        return customersWithProducts.entrySet()
-                .stream()
-                .collect(Collectors.groupingBy(entry -> entry.getKey().getAge()))
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getPopularCategory(entry.getValue())));
-    }
-
-    private static Category getPopularCategory(List<Map.Entry<Customer, Map<Product, Long>>> customersWithProducts) {
-        return customersWithProducts
-                .stream()
-                .map(Map.Entry::getValue)
-                .flatMap(m -> m.entrySet().stream())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, Long::sum))
-                .entrySet()
-                .stream()
-                .collect(Collectors.groupingBy(entry -> toCategory.apply(entry.getKey())))
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getQuantity(entry.getValue())))
-                .entrySet()
-                .stream()
-                .max(Comparator.comparingLong(Map.Entry::getValue))
-                .map(Map.Entry::getKey)
-                .orElseThrow();
-    }
-
-    private static Long getQuantity(List<Map.Entry<Product, Long>> products) {
-        return products.stream()
-                .map(Map.Entry::getValue)
-                .reduce(0L, Long::sum);
+        return read("getAgesWithPopularCategories", ordersIndex::popularCategoryByAge);
+    }
+
+    /*
+        Sztuki i wydatki w przedziałach wieku o szerokości bandWidth lat dla każdej kategorii.
+     */
+    public DemographicCube getDemographicCube(int bandWidth) {
+        return read("getDemographicCube", () -> ordersIndex.demographicCube(bandWidth));
     }
 
     /*
         Wykonaj zestawienie (mapę), w którym pokażesz średnią cenę produktów
         w danej kategorii.
      */
+    @Override
     public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
-        return customersWithProducts.values()
-                .stream()
-                .flatMap(e -> e.entrySet()
-                        .stream()
-                        .flatMap(ee -> Collections.nCopies(ee.getValue().intValue(), ee.getKey()).stream()))
-                .collect(Collectors.groupingBy(
-                        toCategory,
-                        Collectors.collectingAndThen(
-                                Collectors.mapping(toPrice, toList()),
-                                prices -> prices
-                                        .stream()
-                                        .collect(Collectors2.summarizingBigDecimal(p -> p))
-                                        .getAverage()
-                        )
-                ));
+        return read("getCategoriesWithAveragePrices", ordersIndex::averagePrices);
     }
 
     /*
         Dodatkowo wyznacz dla każdej kategorii produkt
         najdroższy oraz produkt najtańszy.
     */
+    @Override
     public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
-        return customersWithProducts.values()
-                .stream()
-                .map(Map::keySet)
-                .flatMap(Set::stream)
-                .collect(Collectors.groupingBy(toCategory))
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getProductWithMaxPrice(entry.getValue())));
-    }
-
-    private static Product getProductWithMaxPrice(List<Product> products) {
-        return products.stream()
-                .max(Comparator.comparing(toPrice))
-                .orElseThrow();
+        return read("getCategoriesAndProductsWithMaxPrice", ordersIndex::productsWithMaxPrice);
     }
 
+    @Override
     public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
-        return customersWithProducts.values()
-                .stream()
-                .map(Map::keySet)
-                .flatMap(Set::stream)
-                .collect(Collectors.groupingBy(toCategory))
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getProductWithMinPrice(entry.getValue())));
-    }
-
-    private static Product getProductWithMinPrice(List<Product> products) {
-        return products.stream()
-                .min(Comparator.comparing(toPrice))
-                .orElseThrow();
+        return read("getCategoriesAndProductsWithMinPrice", ordersIndex::productsWithMinPrice);
     }
 
     /*
         Wyznacz klientów, którzy kupowali najczęściej produkty danej
         kategorii. Otrzymane zestawienie zwracaj w postaci mapy.
      */
+    @Override
     public Map<Category, Customer> getCategoriesAndCustomers() {
-        Map<Customer, Map<Category, Long>> customersWithCategoriesQuantity = getCustomersWithCategoriesQuantity();
-        return Arrays.stream(Category.values())
-                .collect(Collectors.toMap(Function.identity(), category -> getCustomerWithMaxProductsQuantityOfGivenCategory(category, customersWithCategoriesQuantity)));
-    }
-
-    private Map<Customer, Map<Category, Long>> getCustomersWithCategoriesQuantity() {
-        return customersWithProducts
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getCategoriesAndProductsNumbers(entry.getValue())));
-    }
-
-    private static Customer getCustomerWithMaxProductsQuantityOfGivenCategory(Category category,
-                                                                              Map<Customer, Map<Category, Long>> customersWithCategoriesQuantity) {
-        return customersWithCategoriesQuantity.entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getQuantityOfGivenCategory(category, entry.getValue())))
-                .entrySet()
-                .stream()
-                .max(Comparator.comparingLong(Map.Entry::getValue))
-                .map(Map.Entry::getKey)
-                .orElse(null);
-    }
-
-    private static Long getQuantityOfGivenCategory(Category category, Map<Category, Long> categoriesWithQuantities) {
-        return categoriesWithQuantities.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey() == category)
-                .findAny()
-                .map(Map.Entry::getValue)
-                .orElse(0L);
-    }
-
-    private static Map<Category, Long> getCategoriesAndProductsNumbers(Map<Product, Long> products) {
-        return products.entrySet()
-                .stream()
-                .collect(Collectors.groupingBy(entry -> toCategory.apply(entry.getKey())))
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getQuantity(entry.getValue())));
+        return read("getCategoriesAndCustomers", () -> Arrays.stream(Category.values())
+                .collect(Collectors.toMap(Function.identity(), ordersIndex::customerWithMaxQuantityOfCategory)));
     }
 
     /*
@@ -291,22 +334,232 @@ public class OrdersService {
         Dług stanowi różnica pomiędzy kwotą do zapłaty oraz gotówką, którą
         posiada klient.
      */
+    @Override
     public Map<Customer, BigDecimal> getCustomersAndDebts() {
-        return customersWithProducts
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> getDebt(entry.getKey(), entry.getValue())));
+        return read("getCustomersAndDebts", ordersIndex::debts);
+    }
+
+    /*
+        Salda klientów przekazywane po kolei do consumer - bez budowania mapy. Całość
+        przechodzi pod jedną blokadą odczytu, więc consumer nie powinien blokować.
+     */
+    public void forEachCustomerDebt(boolean debtorsOnly, BiConsumer<Customer, BigDecimal> consumer) {
+        if (consumer == null) {
+            throw new OrdersServiceException("Consumer is null");
+        }
+        read("forEachCustomerDebt", () -> {
+            ordersIndex.forEachDebt(debtorsOnly, consumer);
+            return null;
+        });
     }
 
-    private BigDecimal getDebt(Customer customer, Map<Product, Long> products) {
-        return customer.getCash().subtract(getExpense(products));
+    /*
+        Leniwy strumień sald. Klienci są pobierani paczkami, każda pod osobną blokadą
+        odczytu, więc dopisanie zakupów w trakcie czytania może być widoczne od
+        kolejnej paczki.
+     */
+    public Stream<CustomerDebt> streamCustomersAndDebts(boolean debtorsOnly) {
+        return IntStream.iterate(0, fromPosition -> fromPosition < read(ordersIndex::customersCount), fromPosition -> fromPosition + STREAM_CHUNK)
+                .mapToObj(fromPosition -> read(() -> ordersIndex.debts(fromPosition, fromPosition + STREAM_CHUNK, debtorsOnly)))
+                .flatMap(List::stream);
+    }
+
+    /*
+        Strona sald od największego zadłużenia. cursor == null - pierwsza strona.
+     */
+    public DebtsPage getCustomersByDebt(String cursor, int limit, boolean debtorsOnly) {
+        checkPage(0, limit);
+        return read("getCustomersByDebt", () -> ordersIndex.debtsPage(cursor, limit, debtorsOnly));
+    }
+
+    @Override
+    public List<Customer> getCustomersRankedByExpense(int offset, int limit) {
+        checkPage(offset, limit);
+        return read("getCustomersRankedByExpense", () -> ordersIndex.customersRankedByExpense(offset, limit));
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        checkPage(0, limit);
+        return read("getTopCustomersByExpenseOnCategory", () -> ordersIndex.topCustomersByExpenseOnCategory(category, limit));
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+        checkPage(0, limit);
+        return read("getTopCustomersByExpenseForAge", () -> ordersIndex.topCustomersByExpenseForAge(minAge, maxAge, limit));
+    }
+
+    /*
+        Agregaty, z których scala się wyniki kilku serwisów z rozłącznymi klientami.
+     */
+    public PartialReport getPartialReport() {
+        return read("getPartialReport", ordersIndex::partialReport);
+    }
+
+    /*
+        Ranking z sumami wydatków. category == null - wydatki ze wszystkich kategorii.
+     */
+    public List<CustomerExpense> getTopExpenses(Category category, int minAge, int maxAge, int offset, int limit) {
+        checkPage(offset, limit);
+        return read("getTopExpenses", () -> ordersIndex.topExpenses(category, minAge, maxAge, offset, limit));
+    }
+
+    /*
+        Zapytania ograniczone do klientów wybranych filtrem. Widok nie kopiuje danych:
+        każde zapytanie wylicza filtr na bitmapach indeksu i sumuje wartości tylko
+        wybranych klientów, pod blokadą odczytu tego serwisu.
+     */
+    public OrdersQueries where(CustomerFilter filter) {
+        if (filter == null) {
+            throw new OrdersServiceException("Customer filter is null");
+        }
+        return new FilteredOrdersQueries(filter);
+    }
+
+    public List<Customer> getCustomersWithMaxExpense(CustomerFilter filter) {
+        return where(filter).getCustomersWithMaxExpense();
+    }
+
+    public Customer getCustomerWithMaxExpenseOnCategory(Category category, CustomerFilter filter) {
+        return where(filter).getCustomerWithMaxExpenseOnCategory(category);
+    }
+
+    public Map<Integer, List<Category>> findMostPopularCategoryForAge(CustomerFilter filter) {
+        return where(filter).findMostPopularCategoryForAge();
+    }
+
+    public Map<Integer, Category> getAgesWithPopularCategories(CustomerFilter filter) {
+        return where(filter).getAgesWithPopularCategories();
+    }
+
+    public Map<Category, BigDecimal> getCategoriesWithAveragePrices(CustomerFilter filter) {
+        return where(filter).getCategoriesWithAveragePrices();
+    }
+
+    public Map<Category, Product> getCategoriesAndProductsWithMaxPrice(CustomerFilter filter) {
+        return where(filter).getCategoriesAndProductsWithMaxPrice();
+    }
+
+    public Map<Category, Product> getCategoriesAndProductsWithMinPrice(CustomerFilter filter) {
+        return where(filter).getCategoriesAndProductsWithMinPrice();
     }
 
-    private static BigDecimal getExpense(Map<Product, Long> products) {
-        return products.entrySet()
-                .stream()
-                .map(OrdersService::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Map<Category, Customer> getCategoriesAndCustomers(CustomerFilter filter) {
+        return where(filter).getCategoriesAndCustomers();
+    }
+
+    public Map<Customer, BigDecimal> getCustomersAndDebts(CustomerFilter filter) {
+        return where(filter).getCustomersAndDebts();
+    }
+
+    public OrdersReport report(Set<ReportQuery> queries, CustomerFilter filter) {
+        return where(filter).report(queries);
+    }
+
+    private final class FilteredOrdersQueries implements OrdersQueries {
+
+        private final CustomerFilter filter;
+
+        private FilteredOrdersQueries(CustomerFilter filter) {
+            this.filter = filter;
+        }
+
+        private <T> T readSelected(String queryName, Function<OrdersIndex.Selection, T> query) {
+            return read("where." + queryName, () -> query.apply(ordersIndex.select(filter)));
+        }
+
+        @Override
+        public List<Customer> getCustomersWithMaxExpense() {
+            return readSelected("getCustomersWithMaxExpense", OrdersIndex.Selection::customersWithMaxExpense);
+        }
+
+        @Override
+        public Customer getCustomerWithMaxExpenseOnCategory(Category category) {
+            if (category == null) {
+                throw new OrdersServiceException("Category is null");
+            }
+            return Optional.ofNullable(readSelected("getCustomerWithMaxExpenseOnCategory",
+                    selection -> selection.customerWithMaxExpenseOnCategory(category))).orElseThrow();
+        }
+
+        @Override
+        public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+            return readSelected("findMostPopularCategoryForAge", OrdersIndex.Selection::mostPopularCategoriesByAge);
+        }
+
+        @Override
+        public Map<Integer, Category> getAgesWithPopularCategories() {
+            return readSelected("getAgesWithPopularCategories", OrdersIndex.Selection::popularCategoryByAge);
+        }
+
+        @Override
+        public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
+            return readSelected("getCategoriesWithAveragePrices", OrdersIndex.Selection::averagePrices);
+        }
+
+        @Override
+        public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
+            return readSelected("getCategoriesAndProductsWithMaxPrice", OrdersIndex.Selection::productsWithMaxPrice);
+        }
+
+        @Override
+        public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
+            return readSelected("getCategoriesAndProductsWithMinPrice", OrdersIndex.Selection::productsWithMinPrice);
+        }
+
+        @Override
+        public Map<Category, Customer> getCategoriesAndCustomers() {
+            return readSelected("getCategoriesAndCustomers", OrdersIndex.Selection::customersWithMaxQuantityOfCategory);
+        }
+
+        @Override
+        public Map<Customer, BigDecimal> getCustomersAndDebts() {
+            return readSelected("getCustomersAndDebts", OrdersIndex.Selection::debts);
+        }
+
+        @Override
+        public List<Customer> getCustomersRankedByExpense(int offset, int limit) {
+            checkPage(offset, limit);
+            return readSelected("getCustomersRankedByExpense", selection -> selection.customersRankedByExpense(offset, limit));
+        }
+
+        @Override
+        public List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit) {
+            if (category == null) {
+                throw new OrdersServiceException("Category is null");
+            }
+            checkPage(0, limit);
+            return readSelected("getTopCustomersByExpenseOnCategory", selection -> selection.topCustomersByExpenseOnCategory(category, limit));
+        }
+
+        @Override
+        public List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+            checkPage(0, limit);
+            return readSelected("getTopCustomersByExpenseForAge", selection -> selection.topCustomersByExpenseForAge(minAge, maxAge, limit));
+        }
+
+        @Override
+        public long getDataVersion() {
+            return dataVersion;
+        }
+
+        /*
+            Jak OrdersService.report - cały raport z jednego stanu danych.
+         */
+        @Override
+        public OrdersReport report(Set<ReportQuery> queries) {
+            return read("where.report", () -> OrdersQueries.super.report(queries));
+        }
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new OrdersServiceException("Offset and limit have to be >= 0");
+        }
     }
 
 }
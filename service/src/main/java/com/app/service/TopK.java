@@ -0,0 +1,42 @@
+package com.app.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+    Najlepsze k elementów według zadanego porządku, liczone kopcem ograniczonym
+    do k elementów - O(n log k) zamiast sortowania wszystkich n.
+ */
+public final class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    /*
+        order ustawia elementy od najlepszego; na szczycie kopca jest najgorszy z zachowanych.
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1 << 16)), order.reversed());
+    }
+
+    public void offer(T element) {
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (k > 0 && order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    public List<T> toList() {
+        List<T> elements = new ArrayList<>(heap);
+        elements.sort(order);
+        return elements;
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.app.service.cache;
+
+public record CacheStats(long hits, long misses, long evictions, long invalidations, int entries, long weight) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.app.service.cache;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.OrdersQueries;
+import com.app.service.exception.OrdersServiceException;
+import com.app.service.report.OrdersReport;
+import com.app.service.report.ReportQuery;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+    Zapamiętuje wyniki zapytań do czasu zmiany wersji danych (getDataVersion).
+    Wpisy są usuwane od najdawniej używanego po przekroczeniu liczby wpisów
+    albo łącznej wagi (liczby elementów wyników). Kilka wątków pytających
+    o ten sam brakujący wpis czeka na jedno obliczenie.
+
+    Zwracane kolekcje są niemodyfikowalne, bo są współdzielone między wywołującymi.
+ */
+public class CachingOrdersQueries implements OrdersQueries {
+
+    private final OrdersQueries ordersQueries;
+    private final int maxEntries;
+    private final long maxWeight;
+
+    private final Map<QueryKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version = Long.MIN_VALUE;
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingOrdersQueries(OrdersQueries ordersQueries, int maxEntries, long maxWeight) {
+        if (ordersQueries == null) {
+            throw new OrdersServiceException("Orders queries are null");
+        }
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new OrdersServiceException("Max entries and max weight have to be >= 1");
+        }
+        this.ordersQueries = ordersQueries;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public List<Customer> getCustomersWithMaxExpense() {
+        return cached(new QueryKey("getCustomersWithMaxExpense"), ordersQueries::getCustomersWithMaxExpense);
+    }
+
+    @Override
+    public Customer getCustomerWithMaxExpenseOnCategory(Category category) {
+        return cached(new QueryKey("getCustomerWithMaxExpenseOnCategory", category),
+                () -> ordersQueries.getCustomerWithMaxExpenseOnCategory(category));
+    }
+
+    @Override
+    public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+        return cached(new QueryKey("findMostPopularCategoryForAge"), ordersQueries::findMostPopularCategoryForAge);
+    }
+
+    @Override
+    public Map<Integer, Category> getAgesWithPopularCategories() {
+        return cached(new QueryKey("getAgesWithPopularCategories"), ordersQueries::getAgesWithPopularCategories);
+    }
+
+    @Override
+    public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
+        return cached(new QueryKey("getCategoriesWithAveragePrices"), ordersQueries::getCategoriesWithAveragePrices);
+    }
+
+    @Override
+    public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
+        return cached(new QueryKey("getCategoriesAndProductsWithMaxPrice"), ordersQueries::getCategoriesAndProductsWithMaxPrice);
+    }
+
+    @Override
+    public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
+        return cached(new QueryKey("getCategoriesAndProductsWithMinPrice"), ordersQueries::getCategoriesAndProductsWithMinPrice);
+    }
+
+    @Override
+    public Map<Category, Customer> getCategoriesAndCustomers() {
+        return cached(new QueryKey("getCategoriesAndCustomers"), ordersQueries::getCategoriesAndCustomers);
+    }
+
+    @Override
+    public Map<Customer, BigDecimal> getCustomersAndDebts() {
+        return cached(new QueryKey("getCustomersAndDebts"), ordersQueries::getCustomersAndDebts);
+    }
+
+    @Override
+    public List<Customer> getCustomersRankedByExpense(int offset, int limit) {
+        return cached(new QueryKey("getCustomersRankedByExpense", offset, limit),
+                () -> ordersQueries.getCustomersRankedByExpense(offset, limit));
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit) {
+        return cached(new QueryKey("getTopCustomersByExpenseOnCategory", category, limit),
+                () -> ordersQueries.getTopCustomersByExpenseOnCategory(category, limit));
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+        return cached(new QueryKey("getTopCustomersByExpenseForAge", minAge, maxAge, limit),
+                () -> ordersQueries.getTopCustomersByExpenseForAge(minAge, maxAge, limit));
+    }
+
+    @Override
+    public OrdersReport report(Set<ReportQuery> queries) {
+        Set<ReportQuery> key = queries.isEmpty() ? EnumSet.noneOf(ReportQuery.class) : EnumSet.copyOf(queries);
+        return cached(new QueryKey("report", key), () -> ordersQueries.report(key));
+    }
+
+    @Override
+    public long getDataVersion() {
+        return ordersQueries.getDataVersion();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size(), weight);
+    }
+
+    public synchronized void invalidate() {
+        if (!entries.isEmpty()) {
+            invalidations.increment();
+        }
+        entries.clear();
+        weight = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(QueryKey key, Supplier<T> query) {
+        long currentVersion = ordersQueries.getDataVersion();
+        Entry entry;
+        boolean computing = false;
+        synchronized (this) {
+            if (currentVersion != version) {
+                invalidate();
+                version = currentVersion;
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                computing = true;
+            }
+        }
+        if (computing) {
+            misses.increment();
+            return (T) compute(key, entry, query);
+        }
+        hits.increment();
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private Object compute(QueryKey key, Entry entry, Supplier<?> query) {
+        Object value;
+        try {
+            value = unmodifiable(query.get());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+        entry.value.complete(value);
+        synchronized (this) {
+            if (entries.get(key) == entry) {
+                entry.weight = weigh(value);
+                weight += entry.weight;
+                evict();
+            }
+        }
+        return value;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            weight -= entry.weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return 1L + collection.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return 1L + map.size();
+        }
+        return 1L;
+    }
+
+    private static Object unmodifiable(Object value) {
+        if (value instanceof List<?> list) {
+            return Collections.unmodifiableList(list);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Collections.unmodifiableMap(map);
+        }
+        return value;
+    }
+
+    private record QueryKey(String query, List<Object> arguments) {
+
+        private QueryKey(String query, Object... arguments) {
+            this(query, Arrays.asList(arguments));
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private long weight;
+    }
+
+}
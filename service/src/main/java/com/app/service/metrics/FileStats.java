@@ -0,0 +1,21 @@
+package com.app.service.metrics;
+
+/*
+    Łączne statystyki parsowania jednego pliku (sumowane przy kolejnych ładowaniach).
+ */
+public record FileStats(long parseNanos, long bytes, long records, long rejectedRecords) {
+
+    FileStats add(FileStats other) {
+        return new FileStats(parseNanos + other.parseNanos, bytes + other.bytes,
+                records + other.records, rejectedRecords + other.rejectedRecords);
+    }
+
+    public double recordsPerSecond() {
+        return parseNanos == 0 ? 0.0 : records * 1e9 / parseNanos;
+    }
+
+    public double bytesPerSecond() {
+        return parseNanos == 0 ? 0.0 : bytes * 1e9 / parseNanos;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.app.service.metrics;
+
+import com.app.service.exception.OrdersServiceException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    Pomiary ładowania i zapytań. Domyślnie wyłączone (włącza je -Dorders.metrics=true,
+    setEnabled albo JMX) - wtedy każdy punkt pomiarowy to jeden odczyt pola volatile.
+ */
+public final class OrdersMetrics implements OrdersMetricsMXBean {
+
+    private static final OrdersMetrics GLOBAL = new OrdersMetrics(Boolean.getBoolean("orders.metrics"));
+    private static final String OBJECT_NAME = "com.app.service:type=OrdersMetrics";
+
+    private volatile boolean enabled;
+    private final Map<String, FileStats> files = new ConcurrentHashMap<>();
+    private final Map<String, QueryStats> queries = new ConcurrentHashMap<>();
+    private final LongAdder rejectedRecords = new LongAdder();
+    private final LongAdder indexBuildNanos = new LongAdder();
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+
+    OrdersMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static OrdersMetrics global() {
+        return GLOBAL;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean allocationCounter
+                && allocationCounter.isThreadAllocatedMemorySupported()) {
+            return allocationCounter;
+        }
+        return null;
+    }
+
+    public void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            throw new OrdersServiceException("Cannot register metrics MBean: %s".formatted(e.getMessage()));
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void recordFile(String filename, long parseNanos, long bytes, long records, long rejected) {
+        files.merge(filename, new FileStats(parseNanos, bytes, records, rejected), FileStats::add);
+        rejectedRecords.add(rejected);
+    }
+
+    public void recordIndexBuild(long nanos) {
+        indexBuildNanos.add(nanos);
+    }
+
+    /*
+        Czas i alokacje liczone dla wątku wywołującego, więc obejmują też
+        czekanie na blokadę odczytu.
+     */
+    public <T> T timeQuery(String name, Supplier<T> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+            queries.computeIfAbsent(name, key -> new QueryStats()).record(nanos, allocated);
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0L : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    public Map<String, FileStats> getFiles() {
+        return new TreeMap<>(files);
+    }
+
+    public Map<String, QueryStats> getQueries() {
+        return new TreeMap<>(queries);
+    }
+
+    @Override
+    public Map<String, Long> getFileParseMillis() {
+        return fileValues(stats -> stats.parseNanos() / 1_000_000);
+    }
+
+    @Override
+    public Map<String, Double> getFileRecordsPerSecond() {
+        return fileValues(FileStats::recordsPerSecond);
+    }
+
+    @Override
+    public Map<String, Double> getFileMegabytesPerSecond() {
+        return fileValues(stats -> stats.bytesPerSecond() / (1 << 20));
+    }
+
+    @Override
+    public long getRejectedRecords() {
+        return rejectedRecords.sum();
+    }
+
+    @Override
+    public long getIndexBuildMillis() {
+        return indexBuildNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public Map<String, Long> getQueryCounts() {
+        return queryValues(stats -> stats.getLatency().getCount());
+    }
+
+    @Override
+    public Map<String, Long> getQueryP50Micros() {
+        return queryValues(stats -> stats.getLatency().getPercentile(50) / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getQueryP99Micros() {
+        return queryValues(stats -> stats.getLatency().getPercentile(99) / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getQueryMaxMicros() {
+        return queryValues(stats -> stats.getLatency().getMax() / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getQueryAllocatedBytesPerCall() {
+        return queryValues(QueryStats::getAllocatedBytesPerCall);
+    }
+
+    private <V> Map<String, V> fileValues(Function<FileStats, V> value) {
+        Map<String, V> values = new TreeMap<>();
+        files.forEach((filename, stats) -> values.put(filename, value.apply(stats)));
+        return values;
+    }
+
+    private <V> Map<String, V> queryValues(Function<QueryStats, V> value) {
+        Map<String, V> values = new TreeMap<>();
+        queries.forEach((name, stats) -> values.put(name, value.apply(stats)));
+        return values;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append("files\n");
+        getFiles().forEach((filename, stats) -> dump.append("  %s: %d ms, %d bytes, %d records (%.0f records/s, %.1f MB/s), %d rejected%n"
+                .formatted(filename, stats.parseNanos() / 1_000_000, stats.bytes(), stats.records(),
+                        stats.recordsPerSecond(), stats.bytesPerSecond() / (1 << 20), stats.rejectedRecords())));
+        dump.append("rejected records: %d%n".formatted(getRejectedRecords()));
+        dump.append("index build: %d ms%n".formatted(getIndexBuildMillis()));
+        dump.append("queries\n");
+        getQueries().forEach((name, stats) -> {
+            LatencyHistogram latency = stats.getLatency();
+            dump.append("  %s: %d calls, mean %.1f us, p50 %d us, p90 %d us, p99 %d us, max %d us, %d B/call%n"
+                    .formatted(name, latency.getCount(), latency.getMean() / 1_000,
+                            latency.getPercentile(50) / 1_000, latency.getPercentile(90) / 1_000,
+                            latency.getPercentile(99) / 1_000, latency.getMax() / 1_000,
+                            stats.getAllocatedBytesPerCall()));
+        });
+        return dump.toString();
+    }
+
+    @Override
+    public void reset() {
+        files.clear();
+        queries.clear();
+        rejectedRecords.reset();
+        indexBuildNanos.reset();
+    }
+
+}
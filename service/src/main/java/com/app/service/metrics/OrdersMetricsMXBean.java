@@ -0,0 +1,35 @@
+package com.app.service.metrics;
+
+import java.util.Map;
+
+public interface OrdersMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    Map<String, Long> getFileParseMillis();
+
+    Map<String, Double> getFileRecordsPerSecond();
+
+    Map<String, Double> getFileMegabytesPerSecond();
+
+    long getRejectedRecords();
+
+    long getIndexBuildMillis();
+
+    Map<String, Long> getQueryCounts();
+
+    Map<String, Long> getQueryP50Micros();
+
+    Map<String, Long> getQueryP99Micros();
+
+    Map<String, Long> getQueryMaxMicros();
+
+    Map<String, Long> getQueryAllocatedBytesPerCall();
+
+    String dump();
+
+    void reset();
+
+}
@@ -0,0 +1,33 @@
+package com.app.service.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Czasy wykonania (ns) i zaalokowane bajty jednego zapytania.
+ */
+public final class QueryStats {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    void record(long nanos, long bytes) {
+        latency.record(nanos);
+        if (bytes > 0) {
+            allocatedBytes.add(bytes);
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long getAllocatedBytesPerCall() {
+        long calls = latency.getCount();
+        return calls == 0 ? 0L : allocatedBytes.sum() / calls;
+    }
+
+}
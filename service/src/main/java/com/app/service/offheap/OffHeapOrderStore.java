@@ -0,0 +1,165 @@
+package com.app.service.offheap;
+
+import com.app.service.exception.OrdersServiceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Kolumnowy magazyn pozycji zakupów poza stertą: każda pozycja to indeks klienta,
+    indeks produktu, liczba sztuk, cena w groszach (jednostkach skali sklepu) i numer
+    kategorii. Dane leżą w segmentach - buforach direct albo plikach mapowanych do
+    pamięci, więc ich liczba nie jest ograniczona rozmiarem sterty.
+
+    Bufory direct z offHeap() podlegają jednak limitowi -XX:MaxDirectMemorySize, który
+    domyślnie równa się maksymalnemu rozmiarowi sterty (-Xmx); po jego przekroczeniu
+    dopisywanie kończy się OutOfMemoryError: Direct buffer memory. Segment zajmuje
+    SEGMENT_ROWS * 25 B (ok. 25 MB). Dla danych większych niż sterta trzeba podnieść
+    ten limit albo użyć mapped(directory), którego nie dotyczy.
+ */
+public final class OffHeapOrderStore implements AutoCloseable {
+
+    static final int SEGMENT_ROWS = 1 << 20;
+    private static final int ROW_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES;
+
+    private final Path directory;
+    private final List<Segment> segments = new ArrayList<>();
+    private long size;
+
+    private OffHeapOrderStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static OffHeapOrderStore offHeap() {
+        return new OffHeapOrderStore(null);
+    }
+
+    public static OffHeapOrderStore mapped(Path directory) {
+        try {
+            return new OffHeapOrderStore(Files.createDirectories(directory));
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot create store directory %s: %s".formatted(directory, e.getMessage()));
+        }
+    }
+
+    public void append(int customerId, int productId, long quantity, long price, int category) {
+        int row = (int) (size % SEGMENT_ROWS);
+        if (row == 0) {
+            segments.add(newSegment(segments.size()));
+        }
+        segments.get(segments.size() - 1).put(row, customerId, productId, quantity, price, category);
+        size++;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /*
+        Cofa magazyn do podanej liczby pozycji - wycofanie nieudanego dopisywania.
+     */
+    public void truncate(long newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new OrdersServiceException("Cannot truncate store of size %d to %d".formatted(size, newSize));
+        }
+        int segmentsCount = (int) ((newSize + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+        while (segments.size() > segmentsCount) {
+            segments.remove(segments.size() - 1);
+        }
+        size = newSize;
+    }
+
+    public void scan(RowVisitor visitor) {
+        scan(0, size, visitor);
+    }
+
+    public void scan(long fromRow, long toRow, RowVisitor visitor) {
+        long row = fromRow;
+        while (row < toRow) {
+            Segment segment = segments.get((int) (row / SEGMENT_ROWS));
+            int first = (int) (row % SEGMENT_ROWS);
+            int last = (int) Math.min(SEGMENT_ROWS, first + (toRow - row));
+            for (int i = first; i < last; i++) {
+                visitor.visit(
+                        segment.customerIds.getInt(i * Integer.BYTES),
+                        segment.productIds.getInt(i * Integer.BYTES),
+                        segment.quantities.getLong(i * Long.BYTES),
+                        segment.prices.getLong(i * Long.BYTES),
+                        segment.categories.get(i));
+            }
+            row += last - first;
+        }
+    }
+
+    private Segment newSegment(int number) {
+        if (directory == null) {
+            return new Segment(ByteBuffer.allocateDirect(SEGMENT_ROWS * ROW_BYTES));
+        }
+        Path file = directory.resolve("segment-%05d.bin".formatted(number));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_ROWS * ROW_BYTES));
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot create store segment %s: %s".formatted(file, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void close() {
+        segments.clear();
+        size = 0;
+        if (directory == null) {
+            return;
+        }
+        try (var files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().startsWith("segment-")).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot delete store segments in %s: %s".formatted(directory, e.getMessage()));
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(int customerId, int productId, long quantity, long price, int category);
+    }
+
+    private static final class Segment {
+        private final ByteBuffer customerIds;
+        private final ByteBuffer productIds;
+        private final ByteBuffer quantities;
+        private final ByteBuffer prices;
+        private final ByteBuffer categories;
+
+        private Segment(ByteBuffer buffer) {
+            buffer.order(ByteOrder.nativeOrder());
+            int offset = 0;
+            customerIds = column(buffer, offset, SEGMENT_ROWS * Integer.BYTES);
+            productIds = column(buffer, offset += SEGMENT_ROWS * Integer.BYTES, SEGMENT_ROWS * Integer.BYTES);
+            quantities = column(buffer, offset += SEGMENT_ROWS * Integer.BYTES, SEGMENT_ROWS * Long.BYTES);
+            prices = column(buffer, offset += SEGMENT_ROWS * Long.BYTES, SEGMENT_ROWS * Long.BYTES);
+            categories = column(buffer, offset + SEGMENT_ROWS * Long.BYTES, SEGMENT_ROWS);
+        }
+
+        private static ByteBuffer column(ByteBuffer buffer, int offset, int length) {
+            return buffer.slice(offset, length).order(ByteOrder.nativeOrder());
+        }
+
+        private void put(int row, int customerId, int productId, long quantity, long price, int category) {
+            customerIds.putInt(row * Integer.BYTES, customerId);
+            productIds.putInt(row * Integer.BYTES, productId);
+            quantities.putLong(row * Long.BYTES, quantity);
+            prices.putLong(row * Long.BYTES, price);
+            categories.put(row, (byte) category);
+        }
+    }
+
+}
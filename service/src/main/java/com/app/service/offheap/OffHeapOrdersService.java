@@ -0,0 +1,565 @@
+package com.app.service.offheap;
+
+import com.app.persistence.converter.CustomerWithProductsConverter;
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
+import com.app.persistence.snapshot.OrdersSnapshot;
+import com.app.persistence.snapshot.SnapshotReader;
+import com.app.persistence.validator.ValidationStage;
+import com.app.service.OrdersQueries;
+import com.app.service.TopK;
+import com.app.service.exception.OrdersServiceException;
+import com.app.service.report.OrdersReport;
+import com.app.service.report.ReportQuery;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.list.primitive.MutableLongList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+import static com.app.persistence.model.CustomerUtils.toAge;
+import static com.app.persistence.model.ProductUtils.toCategory;
+import static com.app.persistence.model.ProductUtils.toPrice;
+import static com.app.service.report.ReportQuery.*;
+
+/*
+    Implementacja zapytań OrdersService nad OffHeapOrderStore. Na stercie zostają
+    tylko słowniki klientów i produktów oraz tablice długości liczby klientów;
+    pozycje zakupów są skanowane bezpośrednio z buforów.
+
+    Ceny są trzymane w jednostkach skali priceScale (np. 2 = grosze), więc cena
+    z większą liczbą miejsc po przecinku jest odrzucana przy ładowaniu.
+ */
+public class OffHeapOrdersService implements OrdersQueries, AutoCloseable {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private static final long MIN_PARTITION_ROWS = 1 << 16;
+
+    private final OffHeapOrderStore store;
+    private final int priceScale;
+    private final ForkJoinPool pool;
+    private final ValidationStage validationStage;
+
+    private final List<Customer> customers = new ArrayList<>();
+    private final MutableObjectIntMap<Customer> customerIds = new ObjectIntHashMap<>();
+    private final MutableIntList customerAges = new IntArrayList();
+
+    private final List<Product> products = new ArrayList<>();
+    private final MutableObjectIntMap<Product> productIds = new ObjectIntHashMap<>();
+    private final MutableLongList productPrices = new LongArrayList();
+    private final MutableIntList productScales = new IntArrayList();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long dataVersion;
+
+    public OffHeapOrdersService(OffHeapOrderStore store, int priceScale) {
+        this(store, priceScale, null);
+    }
+
+    /*
+        Z pulą zapytania skanują magazyn równolegle w zakresach wierszy. Pula
+        należy do wywołującego - close() jej nie zamyka.
+     */
+    public OffHeapOrdersService(OffHeapOrderStore store, int priceScale, ForkJoinPool pool) {
+        this(store, priceScale, pool, ValidationStage.failFast());
+    }
+
+    public OffHeapOrdersService(OffHeapOrderStore store, int priceScale, ForkJoinPool pool, ValidationStage validationStage) {
+        if (priceScale < 0) {
+            throw new OrdersServiceException("Price scale has to be >= 0");
+        }
+        if (validationStage == null) {
+            throw new OrdersServiceException("Validation stage is null");
+        }
+        this.store = store;
+        this.priceScale = priceScale;
+        this.pool = pool;
+        this.validationStage = validationStage;
+    }
+
+    /*
+        Pliki są parsowane i walidowane do bufora Batch bez blokady, więc zapytania
+        czekają tylko na przepisanie gotowych pozycji do magazynu. Błąd w którymkolwiek
+        pliku odrzuca całą partię i nie zmienia danych ani dataVersion.
+     */
+    public void append(List<String> jsonFilenames) {
+        Batch batch = new Batch();
+        MutableObjectLongMap<Product> quantities = new ObjectLongHashMap<>();
+        try {
+            jsonFilenames.forEach(filename -> {
+                try {
+                    new CustomerWithProductsConverter(filename).forEach(customerWithProducts -> {
+                        if (validationStage.accept(filename, customerWithProducts)) {
+                            batch.add(customerWithProducts, quantities);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    throw new OrdersServiceException("Cannot load json file %s: %s".formatted(filename, e.getMessage()));
+                }
+            });
+        } finally {
+            validationStage.flush();
+        }
+        write(() -> publish(batch.customers, batch.products, batch.prices.toArray(), IntBuffer.wrap(batch.customerIdsColumn.toArray()),
+                IntBuffer.wrap(batch.productIdsColumn.toArray()), LongBuffer.wrap(batch.quantitiesColumn.toArray()), batch.customerIdsColumn.size()));
+    }
+
+    public void appendSnapshot(String snapshotFilename) {
+        OrdersSnapshot snapshot;
+        try {
+            snapshot = new SnapshotReader(snapshotFilename).read();
+        } catch (RuntimeException e) {
+            throw new OrdersServiceException("Cannot load snapshot %s: %s".formatted(snapshotFilename, e.getMessage()));
+        }
+        long[] snapshotPrices = snapshot.getProducts().stream().mapToLong(this::scaledPrice).toArray();
+        write(() -> publish(snapshot.getCustomers(), snapshot.getProducts(), snapshotPrices, snapshot.getCustomerIds(),
+                snapshot.getProductIds(), snapshot.getQuantities(), snapshot.getLineItemsCount()));
+    }
+
+    /*
+        Pozycje partii z lokalnymi indeksami klientów i produktów; ceny są już
+        przeliczone na skalę sklepu, więc pod blokadą nic nie może się nie udać
+        poza brakiem miejsca w magazynie - wtedy partia jest wycofywana.
+     */
+    private void publish(List<Customer> batchCustomers, List<Product> batchProducts, long[] batchPrices,
+                         IntBuffer customerIdsColumn, IntBuffer productIdsColumn, LongBuffer quantitiesColumn, int lineItemsCount) {
+        int customersCount = customers.size();
+        int productsCount = products.size();
+        long storeSize = store.size();
+        try {
+            int[] batchCustomerIds = batchCustomers.stream().mapToInt(this::customerId).toArray();
+            int[] batchProductIds = new int[batchProducts.size()];
+            for (int i = 0; i < batchProductIds.length; i++) {
+                batchProductIds[i] = productId(batchProducts.get(i), batchPrices[i]);
+            }
+            for (int i = 0; i < lineItemsCount; i++) {
+                appendRow(batchCustomerIds[customerIdsColumn.get(i)], batchProductIds[productIdsColumn.get(i)], quantitiesColumn.get(i));
+            }
+        } catch (RuntimeException | Error e) {
+            rollback(customersCount, productsCount, storeSize);
+            throw e;
+        }
+    }
+
+    private void rollback(int customersCount, int productsCount, long storeSize) {
+        store.truncate(storeSize);
+        for (int customerId = customers.size() - 1; customerId >= customersCount; customerId--) {
+            customerIds.remove(customers.remove(customerId));
+            customerAges.removeAtIndex(customerId);
+        }
+        for (int productId = products.size() - 1; productId >= productsCount; productId--) {
+            productIds.remove(products.remove(productId));
+            productPrices.removeAtIndex(productId);
+            productScales.removeAtIndex(productId);
+        }
+    }
+
+    private void appendRow(int customerId, int productId, long quantity) {
+        store.append(customerId, productId, quantity, productPrices.get(productId),
+                toCategory.apply(products.get(productId)).ordinal());
+    }
+
+    private int customerId(Customer customer) {
+        return customerIds.getIfAbsentPutWithKey(customer, newCustomer -> {
+            customers.add(newCustomer);
+            customerAges.add(toAge.apply(newCustomer));
+            return customers.size() - 1;
+        });
+    }
+
+    private int productId(Product product, long price) {
+        return productIds.getIfAbsentPutWithKey(product, newProduct -> {
+            productPrices.add(price);
+            productScales.add(Math.max(0, toPrice.apply(newProduct).scale()));
+            products.add(newProduct);
+            return products.size() - 1;
+        });
+    }
+
+    private long scaledPrice(Product product) {
+        BigDecimal price = toPrice.apply(product);
+        try {
+            return price.setScale(priceScale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new OrdersServiceException("Price %s does not fit scale %d".formatted(price, priceScale));
+        }
+    }
+
+    /*
+        Bufor jednego append: słowniki klientów i produktów partii oraz kolumny pozycji
+        z indeksami do tych słowników.
+     */
+    private final class Batch {
+
+        private final List<Customer> customers = new ArrayList<>();
+        private final MutableObjectIntMap<Customer> customerIds = new ObjectIntHashMap<>();
+        private final List<Product> products = new ArrayList<>();
+        private final MutableObjectIntMap<Product> productIds = new ObjectIntHashMap<>();
+        private final MutableLongList prices = new LongArrayList();
+
+        private final MutableIntList customerIdsColumn = new IntArrayList();
+        private final MutableIntList productIdsColumn = new IntArrayList();
+        private final MutableLongList quantitiesColumn = new LongArrayList();
+
+        private void add(CustomerWithProducts customerWithProducts, MutableObjectLongMap<Product> quantities) {
+            int customerId = customerIds.getIfAbsentPutWithKey(customerWithProducts.getCustomer(), newCustomer -> {
+                customers.add(newCustomer);
+                return customers.size() - 1;
+            });
+            quantities.clear();
+            customerWithProducts.getProducts().forEach(product -> quantities.addToValue(product, 1L));
+            quantities.forEachKeyValue((product, quantity) -> {
+                customerIdsColumn.add(customerId);
+                productIdsColumn.add(productIds.getIfAbsentPutWithKey(product, newProduct -> {
+                    prices.add(scaledPrice(newProduct));
+                    products.add(newProduct);
+                    return products.size() - 1;
+                }));
+                quantitiesColumn.add(quantity);
+            });
+        }
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    public long size() {
+        return read(store::size);
+    }
+
+    @Override
+    public void close() {
+        write(store::close);
+        validationStage.close();
+    }
+
+    @Override
+    public List<Customer> getCustomersWithMaxExpense() {
+        return report(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE)).getCustomersWithMaxExpense();
+    }
+
+    @Override
+    public Customer getCustomerWithMaxExpenseOnCategory(Category category) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        return report(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY)).getCustomersWithMaxExpenseOnCategory().get(category);
+    }
+
+    @Override
+    public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+        return report(EnumSet.of(MOST_POPULAR_CATEGORY_FOR_AGE)).getMostPopularCategoryForAge();
+    }
+
+    @Override
+    public Map<Integer, Category> getAgesWithPopularCategories() {
+        return report(EnumSet.of(AGES_WITH_POPULAR_CATEGORIES)).getAgesWithPopularCategories();
+    }
+
+    @Override
+    public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
+        return report(EnumSet.of(CATEGORIES_WITH_AVERAGE_PRICES)).getCategoriesWithAveragePrices();
+    }
+
+    @Override
+    public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
+        return report(EnumSet.of(CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE)).getCategoriesAndProductsWithMaxPrice();
+    }
+
+    @Override
+    public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
+        return report(EnumSet.of(CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE)).getCategoriesAndProductsWithMinPrice();
+    }
+
+    @Override
+    public Map<Category, Customer> getCategoriesAndCustomers() {
+        return report(EnumSet.of(CATEGORIES_AND_CUSTOMERS)).getCategoriesAndCustomers();
+    }
+
+    @Override
+    public Map<Customer, BigDecimal> getCustomersAndDebts() {
+        return report(EnumSet.of(CUSTOMERS_AND_DEBTS)).getCustomersAndDebts();
+    }
+
+    @Override
+    public List<Customer> getCustomersRankedByExpense(int offset, int limit) {
+        checkPage(offset, limit);
+        return read(() -> topCustomers(offset, limit, scan(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE)).expenses, 0, 1, customerId -> true));
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        checkPage(0, limit);
+        int ordinal = category.ordinal();
+        return read(() -> {
+            long[] categoryExpenses = scan(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY)).categoryExpensesByCustomer;
+            return topCustomers(0, limit, categoryExpenses, ordinal, CATEGORIES.length,
+                    customerId -> categoryExpenses[customerId * CATEGORIES.length + ordinal] > 0);
+        });
+    }
+
+    @Override
+    public List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+        checkPage(0, limit);
+        return read(() -> topCustomers(0, limit, scan(EnumSet.of(CUSTOMERS_WITH_MAX_EXPENSE)).expenses, 0, 1, customerId -> {
+            int age = customerAges.get(customerId);
+            return age >= minAge && age <= maxAge;
+        }));
+    }
+
+    private List<Customer> topCustomers(int offset, int limit, long[] values, int valuesOffset, int stride, IntPredicate filter) {
+        Comparator<Integer> order = (first, second) -> {
+            int comparison = Long.compare(values[valuesOffset + second * stride], values[valuesOffset + first * stride]);
+            return comparison != 0 ? comparison : Integer.compare(first, second);
+        };
+        TopK<Integer> topCustomers = new TopK<>((int) Math.min(Integer.MAX_VALUE, (long) offset + limit), order);
+        for (int customerId = 0; customerId < customers.size(); customerId++) {
+            if (filter.test(customerId)) {
+                topCustomers.offer(customerId);
+            }
+        }
+        List<Integer> ranking = topCustomers.toList();
+        return ranking.subList(Math.min(offset, ranking.size()), ranking.size())
+                .stream()
+                .map(customers::get)
+                .toList();
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new OrdersServiceException("Offset and limit have to be >= 0");
+        }
+    }
+
+    /*
+        Wszystkie wybrane zapytania liczone w jednym przebiegu po magazynie.
+     */
+    @Override
+    public OrdersReport report(Set<ReportQuery> queries) {
+        return read(() -> toReport(queries, scan(queries)));
+    }
+
+    private ReportAccumulator scan(Set<ReportQuery> queries) {
+        Supplier<ReportAccumulator> accumulators = () -> new ReportAccumulator(queries, customers.size(), productPrices, productScales);
+        if (pool == null || store.size() < 2 * MIN_PARTITION_ROWS) {
+            ReportAccumulator accumulator = accumulators.get();
+            store.scan(accumulator);
+            return accumulator;
+        }
+        // akumulator ma rozmiar liczby klientów, więc zakresów jest tyle, ile wątków puli
+        long partitionRows = Math.max(MIN_PARTITION_ROWS, store.size() / pool.getParallelism());
+        return pool.invoke(new ScanTask(accumulators, 0, store.size(), partitionRows));
+    }
+
+    /*
+        Zakres dzielony na pół, a wyniki scalane zawsze w kolejności lewy + prawy,
+        więc remisy rozstrzygają się tak samo jak przy skanie sekwencyjnym.
+     */
+    private final class ScanTask extends RecursiveTask<ReportAccumulator> {
+
+        private final Supplier<ReportAccumulator> accumulators;
+        private final long fromRow;
+        private final long toRow;
+        private final long partitionRows;
+
+        private ScanTask(Supplier<ReportAccumulator> accumulators, long fromRow, long toRow, long partitionRows) {
+            this.accumulators = accumulators;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.partitionRows = partitionRows;
+        }
+
+        @Override
+        protected ReportAccumulator compute() {
+            if (toRow - fromRow <= partitionRows) {
+                ReportAccumulator accumulator = accumulators.get();
+                store.scan(fromRow, toRow, accumulator);
+                return accumulator;
+            }
+            long middleRow = fromRow + (toRow - fromRow) / 2;
+            ScanTask right = new ScanTask(accumulators, middleRow, toRow, partitionRows);
+            right.fork();
+            ReportAccumulator left = new ScanTask(accumulators, fromRow, middleRow, partitionRows).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+
+    private OrdersReport toReport(Set<ReportQuery> queries, ReportAccumulator accumulator) {
+        OrdersReport.OrdersReportBuilder report = OrdersReport.builder();
+        if (queries.contains(CUSTOMERS_WITH_MAX_EXPENSE)) {
+            report.customersWithMaxExpense(customersWithMaxExpense(accumulator.expenses));
+        }
+        if (queries.contains(CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY)) {
+            report.customersWithMaxExpenseOnCategory(customersWithMaxValue(accumulator.categoryExpensesByCustomer, new EnumMap<>(Category.class)));
+        }
+        if (queries.contains(MOST_POPULAR_CATEGORY_FOR_AGE) || queries.contains(AGES_WITH_POPULAR_CATEGORIES)) {
+            Map<Integer, List<Category>> mostPopularCategories = mostPopularCategoriesByAge(accumulator.categoryQuantitiesByCustomer);
+            if (queries.contains(MOST_POPULAR_CATEGORY_FOR_AGE)) {
+                report.mostPopularCategoryForAge(mostPopularCategories);
+            }
+            if (queries.contains(AGES_WITH_POPULAR_CATEGORIES)) {
+                Map<Integer, Category> popularCategories = new HashMap<>();
+                mostPopularCategories.forEach((age, categories) -> popularCategories.put(age, categories.get(0)));
+                report.agesWithPopularCategories(popularCategories);
+            }
+        }
+        if (queries.contains(CATEGORIES_WITH_AVERAGE_PRICES)) {
+            report.categoriesWithAveragePrices(averagePrices(accumulator));
+        }
+        if (queries.contains(CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE)) {
+            report.categoriesAndProductsWithMaxPrice(productsOf(accumulator.maxPriceProducts));
+        }
+        if (queries.contains(CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE)) {
+            report.categoriesAndProductsWithMinPrice(productsOf(accumulator.minPriceProducts));
+        }
+        if (queries.contains(CATEGORIES_AND_CUSTOMERS)) {
+            report.categoriesAndCustomers(customersWithMaxValue(accumulator.categoryQuantitiesByCustomer, new HashMap<>()));
+        }
+        if (queries.contains(CUSTOMERS_AND_DEBTS)) {
+            report.customersAndDebts(debts(accumulator.expenses, accumulator.expenseScales));
+        }
+        return report.build();
+    }
+
+    private List<Customer> customersWithMaxExpense(long[] expenses) {
+        long maxExpense = Arrays.stream(expenses).max().orElseThrow();
+        List<Customer> customersWithMaxExpense = new ArrayList<>();
+        for (int customerId = 0; customerId < expenses.length; customerId++) {
+            if (expenses[customerId] == maxExpense) {
+                customersWithMaxExpense.add(customers.get(customerId));
+            }
+        }
+        return customersWithMaxExpense;
+    }
+
+    private Map<Category, Customer> customersWithMaxValue(long[] valuesByCustomer, Map<Category, Customer> customersWithMaxValue) {
+        for (Category category : CATEGORIES) {
+            customersWithMaxValue.put(category, customers.get(argMax(valuesByCustomer, category.ordinal(), CATEGORIES.length)));
+        }
+        return customersWithMaxValue;
+    }
+
+    private Map<Integer, List<Category>> mostPopularCategoriesByAge(long[] categoryQuantitiesByCustomer) {
+        Map<Integer, long[]> quantitiesByAge = new HashMap<>();
+        for (int customerId = 0; customerId < customers.size(); customerId++) {
+            long[] quantities = quantitiesByAge.computeIfAbsent(customerAges.get(customerId), age -> new long[CATEGORIES.length]);
+            for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+                quantities[ordinal] += categoryQuantitiesByCustomer[customerId * CATEGORIES.length + ordinal];
+            }
+        }
+        Map<Integer, List<Category>> mostPopularCategories = new HashMap<>();
+        quantitiesByAge.forEach((age, quantities) -> {
+            long maxQuantity = Arrays.stream(quantities).max().orElseThrow();
+            if (maxQuantity == 0) {
+                throw new NoSuchElementException("No value present");
+            }
+            List<Category> categories = new ArrayList<>();
+            for (Category category : CATEGORIES) {
+                if (quantities[category.ordinal()] == maxQuantity) {
+                    categories.add(category);
+                }
+            }
+            mostPopularCategories.put(age, categories);
+        });
+        return mostPopularCategories;
+    }
+
+    private Map<Category, BigDecimal> averagePrices(ReportAccumulator accumulator) {
+        Map<Category, BigDecimal> averagePrices = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            int ordinal = category.ordinal();
+            if (accumulator.categoryQuantities[ordinal] > 0) {
+                averagePrices.put(category, toBigDecimal(accumulator.categoryExpenses[ordinal], accumulator.categoryScales[ordinal])
+                        .divide(BigDecimal.valueOf(accumulator.categoryQuantities[ordinal]), MathContext.DECIMAL128));
+            }
+        }
+        return averagePrices;
+    }
+
+    private Map<Category, Product> productsOf(int[] productIdsByCategory) {
+        Map<Category, Product> productsByCategory = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            if (productIdsByCategory[category.ordinal()] != -1) {
+                productsByCategory.put(category, products.get(productIdsByCategory[category.ordinal()]));
+            }
+        }
+        return productsByCategory;
+    }
+
+    private Map<Customer, BigDecimal> debts(long[] expenses, int[] scales) {
+        Map<Customer, BigDecimal> debts = new HashMap<>();
+        for (int customerId = 0; customerId < expenses.length; customerId++) {
+            Customer customer = customers.get(customerId);
+            debts.put(customer, customer.getCash().subtract(toBigDecimal(expenses[customerId], scales[customerId])));
+        }
+        return debts;
+    }
+
+    /*
+        Kwota zapisana w skali sklepu, przeskalowana do skali, jaką dałoby
+        sumowanie oryginalnych cen na BigDecimal.
+     */
+    private BigDecimal toBigDecimal(long amount, int scale) {
+        return BigDecimal.valueOf(amount, priceScale).setScale(scale, RoundingMode.UNNECESSARY);
+    }
+
+    private static int argMax(long[] values, int offset, int stride) {
+        int argMax = -1;
+        for (int i = offset; i < values.length; i += stride) {
+            if (argMax == -1 || values[i] > values[argMax]) {
+                argMax = i;
+            }
+        }
+        if (argMax == -1) {
+            throw new NoSuchElementException("No value present");
+        }
+        return argMax / stride;
+    }
+
+    private <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } catch (ArithmeticException e) {
+            throw new OrdersServiceException("Amount exceeds fixed-point range: %s".formatted(e.getMessage()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+            dataVersion++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
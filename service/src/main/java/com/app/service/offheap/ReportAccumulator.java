@@ -0,0 +1,142 @@
+package com.app.service.offheap;
+
+import com.app.persistence.model.Category;
+import com.app.service.report.ReportQuery;
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.eclipse.collections.api.list.primitive.LongList;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static com.app.service.report.ReportQuery.*;
+
+/*
+    Wspólne akumulatory dla jednego przebiegu po magazynie. Alokowane są tylko
+    tablice potrzebne do wybranych zapytań, np. sumy wydatków klientów służą
+    jednocześnie do maksimum wydatków i do długów.
+ */
+class ReportAccumulator implements OffHeapOrderStore.RowVisitor {
+
+    static final int CATEGORIES = Category.values().length;
+
+    private final LongList productPrices;
+    private final IntList productScales;
+
+    final long[] expenses;
+    final int[] expenseScales;
+    final long[] categoryExpensesByCustomer;
+    final long[] categoryQuantitiesByCustomer;
+    final long[] categoryExpenses;
+    final long[] categoryQuantities;
+    final int[] categoryScales;
+    final int[] maxPriceProducts;
+    final int[] minPriceProducts;
+
+    ReportAccumulator(Set<ReportQuery> queries, int customersCount, LongList productPrices, IntList productScales) {
+        this.productPrices = productPrices;
+        this.productScales = productScales;
+        boolean debts = queries.contains(CUSTOMERS_AND_DEBTS);
+        expenses = debts || queries.contains(CUSTOMERS_WITH_MAX_EXPENSE) ? new long[customersCount] : null;
+        expenseScales = debts ? new int[customersCount] : null;
+        categoryExpensesByCustomer = queries.contains(CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY)
+                ? new long[customersCount * CATEGORIES] : null;
+        categoryQuantitiesByCustomer = queries.contains(CATEGORIES_AND_CUSTOMERS)
+                || queries.contains(MOST_POPULAR_CATEGORY_FOR_AGE)
+                || queries.contains(AGES_WITH_POPULAR_CATEGORIES)
+                ? new long[customersCount * CATEGORIES] : null;
+        boolean averages = queries.contains(CATEGORIES_WITH_AVERAGE_PRICES);
+        categoryExpenses = averages ? new long[CATEGORIES] : null;
+        categoryQuantities = averages ? new long[CATEGORIES] : null;
+        categoryScales = averages ? new int[CATEGORIES] : null;
+        maxPriceProducts = queries.contains(CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE) ? noProducts() : null;
+        minPriceProducts = queries.contains(CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE) ? noProducts() : null;
+    }
+
+    private static int[] noProducts() {
+        int[] products = new int[CATEGORIES];
+        Arrays.fill(products, -1);
+        return products;
+    }
+
+    /*
+        Dołącza akumulator z późniejszego zakresu wierszy. Przy równych cenach
+        zostaje produkt z wcześniejszego zakresu, tak jak w przebiegu sekwencyjnym.
+     */
+    void merge(ReportAccumulator later) {
+        addAll(expenses, later.expenses);
+        maxAll(expenseScales, later.expenseScales);
+        addAll(categoryExpensesByCustomer, later.categoryExpensesByCustomer);
+        addAll(categoryQuantitiesByCustomer, later.categoryQuantitiesByCustomer);
+        addAll(categoryExpenses, later.categoryExpenses);
+        addAll(categoryQuantities, later.categoryQuantities);
+        maxAll(categoryScales, later.categoryScales);
+        for (int category = 0; category < CATEGORIES; category++) {
+            if (maxPriceProducts != null) {
+                int current = maxPriceProducts[category];
+                int candidate = later.maxPriceProducts[category];
+                if (candidate != -1 && (current == -1 || productPrices.get(candidate) > productPrices.get(current))) {
+                    maxPriceProducts[category] = candidate;
+                }
+            }
+            if (minPriceProducts != null) {
+                int current = minPriceProducts[category];
+                int candidate = later.minPriceProducts[category];
+                if (candidate != -1 && (current == -1 || productPrices.get(candidate) < productPrices.get(current))) {
+                    minPriceProducts[category] = candidate;
+                }
+            }
+        }
+    }
+
+    private static void addAll(long[] values, long[] added) {
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.addExact(values[i], added[i]);
+            }
+        }
+    }
+
+    private static void maxAll(int[] values, int[] others) {
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.max(values[i], others[i]);
+            }
+        }
+    }
+
+    @Override
+    public void visit(int customerId, int productId, long quantity, long price, int category) {
+        long expense = Math.multiplyExact(price, quantity);
+        if (expenses != null) {
+            expenses[customerId] = Math.addExact(expenses[customerId], expense);
+        }
+        if (expenseScales != null) {
+            expenseScales[customerId] = Math.max(expenseScales[customerId], productScales.get(productId));
+        }
+        int customerCategory = customerId * CATEGORIES + category;
+        if (categoryExpensesByCustomer != null) {
+            categoryExpensesByCustomer[customerCategory] = Math.addExact(categoryExpensesByCustomer[customerCategory], expense);
+        }
+        if (categoryQuantitiesByCustomer != null) {
+            categoryQuantitiesByCustomer[customerCategory] += quantity;
+        }
+        if (categoryExpenses != null) {
+            categoryExpenses[category] = Math.addExact(categoryExpenses[category], expense);
+            categoryQuantities[category] += quantity;
+            categoryScales[category] = Math.max(categoryScales[category], productScales.get(productId));
+        }
+        if (maxPriceProducts != null) {
+            int current = maxPriceProducts[category];
+            if (current == -1 || price > productPrices.get(current)) {
+                maxPriceProducts[category] = productId;
+            }
+        }
+        if (minPriceProducts != null) {
+            int current = minPriceProducts[category];
+            if (current == -1 || price < productPrices.get(current)) {
+                minPriceProducts[category] = productId;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.app.service.report;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.OrdersQueries;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Wyniki wybranych zapytań policzone razem. Pola zapytań, o które nie
+    poproszono, mają wartość null.
+ */
+@Builder(toBuilder = true)
+@Getter
+@ToString
+public class OrdersReport {
+
+    private final List<Customer> customersWithMaxExpense;
+    private final Map<Category, Customer> customersWithMaxExpenseOnCategory;
+    private final Map<Integer, List<Category>> mostPopularCategoryForAge;
+    private final Map<Integer, Category> agesWithPopularCategories;
+    private final Map<Category, BigDecimal> categoriesWithAveragePrices;
+    private final Map<Category, Product> categoriesAndProductsWithMaxPrice;
+    private final Map<Category, Product> categoriesAndProductsWithMinPrice;
+    private final Map<Category, Customer> categoriesAndCustomers;
+    private final Map<Customer, BigDecimal> customersAndDebts;
+
+    /*
+        Raport złożony z pojedynczych zapytań - dla implementacji, które nie
+        potrafią policzyć kilku zapytań naraz.
+     */
+    public static OrdersReport of(OrdersQueries ordersQueries, Set<ReportQuery> queries) {
+        OrdersReportBuilder report = OrdersReport.builder();
+        for (ReportQuery query : queries) {
+            switch (query) {
+                case CUSTOMERS_WITH_MAX_EXPENSE -> report.customersWithMaxExpense(ordersQueries.getCustomersWithMaxExpense());
+                case CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY -> {
+                    Map<Category, Customer> customers = new EnumMap<>(Category.class);
+                    Arrays.stream(Category.values()).forEach(category ->
+                            customers.put(category, ordersQueries.getCustomerWithMaxExpenseOnCategory(category)));
+                    report.customersWithMaxExpenseOnCategory(customers);
+                }
+                case MOST_POPULAR_CATEGORY_FOR_AGE -> report.mostPopularCategoryForAge(ordersQueries.findMostPopularCategoryForAge());
+                case AGES_WITH_POPULAR_CATEGORIES -> report.agesWithPopularCategories(ordersQueries.getAgesWithPopularCategories());
+                case CATEGORIES_WITH_AVERAGE_PRICES -> report.categoriesWithAveragePrices(ordersQueries.getCategoriesWithAveragePrices());
+                case CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE -> report.categoriesAndProductsWithMaxPrice(ordersQueries.getCategoriesAndProductsWithMaxPrice());
+                case CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE -> report.categoriesAndProductsWithMinPrice(ordersQueries.getCategoriesAndProductsWithMinPrice());
+                case CATEGORIES_AND_CUSTOMERS -> report.categoriesAndCustomers(ordersQueries.getCategoriesAndCustomers());
+                case CUSTOMERS_AND_DEBTS -> report.customersAndDebts(ordersQueries.getCustomersAndDebts());
+            }
+        }
+        return report.build();
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.app.service.report;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.app.persistence.model.ProductUtils.toPrice;
+import static com.app.service.report.ReportQuery.*;
+
+/*
+    Agregaty jednej części danych (np. shardu), z których da się złożyć wynik dla
+    całości: maksima razem z wartościami, sumy i liczności zamiast średnich, sztuki
+    per wiek zamiast najpopularniejszych kategorii. Klienci nie powtarzają się między
+    częściami, a przy remisach wygrywa część wcześniejsza na liście.
+ */
+@Builder
+@Getter
+@ToString
+public class PartialReport {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final BigDecimal maxExpense;
+    private final List<Customer> customersWithMaxExpense;
+    private final Map<Category, Customer> customersWithMaxExpenseOnCategory;
+    private final Map<Category, BigDecimal> maxExpensesOnCategory;
+    private final Map<Category, Customer> customersWithMaxQuantityOfCategory;
+    private final Map<Category, Long> maxQuantitiesOfCategory;
+    private final Map<Integer, long[]> categoriesQuantitiesByAge;
+    private final Map<Category, BigDecimal> categoriesExpenses;
+    private final Map<Category, Long> categoriesQuantities;
+    private final Map<Category, Product> productsWithMaxPrice;
+    private final Map<Category, Product> productsWithMinPrice;
+
+    public static PartialReport merge(List<PartialReport> partials) {
+        BigDecimal maxExpense = null;
+        List<Customer> customersWithMaxExpense = new ArrayList<>();
+        Map<Category, Customer> customersWithMaxExpenseOnCategory = new EnumMap<>(Category.class);
+        Map<Category, BigDecimal> maxExpensesOnCategory = new EnumMap<>(Category.class);
+        Map<Category, Customer> customersWithMaxQuantityOfCategory = new EnumMap<>(Category.class);
+        Map<Category, Long> maxQuantitiesOfCategory = new EnumMap<>(Category.class);
+        Map<Integer, long[]> categoriesQuantitiesByAge = new HashMap<>();
+        Map<Category, BigDecimal> categoriesExpenses = new EnumMap<>(Category.class);
+        Map<Category, Long> categoriesQuantities = new EnumMap<>(Category.class);
+        Map<Category, Product> productsWithMaxPrice = new EnumMap<>(Category.class);
+        Map<Category, Product> productsWithMinPrice = new EnumMap<>(Category.class);
+
+        for (PartialReport partial : partials) {
+            if (partial.maxExpense != null) {
+                int comparison = maxExpense == null ? 1 : partial.maxExpense.compareTo(maxExpense);
+                if (comparison > 0) {
+                    maxExpense = partial.maxExpense;
+                    customersWithMaxExpense.clear();
+                }
+                if (comparison >= 0) {
+                    customersWithMaxExpense.addAll(partial.customersWithMaxExpense);
+                }
+            }
+            partial.maxExpensesOnCategory.forEach((category, expense) -> {
+                BigDecimal current = maxExpensesOnCategory.get(category);
+                if (current == null || expense.compareTo(current) > 0) {
+                    maxExpensesOnCategory.put(category, expense);
+                    customersWithMaxExpenseOnCategory.put(category, partial.customersWithMaxExpenseOnCategory.get(category));
+                }
+            });
+            partial.maxQuantitiesOfCategory.forEach((category, quantity) -> {
+                Long current = maxQuantitiesOfCategory.get(category);
+                if (current == null || quantity > current) {
+                    maxQuantitiesOfCategory.put(category, quantity);
+                    customersWithMaxQuantityOfCategory.put(category, partial.customersWithMaxQuantityOfCategory.get(category));
+                }
+            });
+            partial.categoriesQuantitiesByAge.forEach((age, quantities) -> {
+                long[] merged = categoriesQuantitiesByAge.computeIfAbsent(age, newAge -> new long[CATEGORIES.length]);
+                for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+                    merged[ordinal] += quantities[ordinal];
+                }
+            });
+            partial.categoriesExpenses.forEach((category, expense) -> categoriesExpenses.merge(category, expense, BigDecimal::add));
+            partial.categoriesQuantities.forEach((category, quantity) -> categoriesQuantities.merge(category, quantity, Long::sum));
+            partial.productsWithMaxPrice.forEach((category, product) -> productsWithMaxPrice.merge(category, product,
+                    (current, candidate) -> toPrice.apply(candidate).compareTo(toPrice.apply(current)) > 0 ? candidate : current));
+            partial.productsWithMinPrice.forEach((category, product) -> productsWithMinPrice.merge(category, product,
+                    (current, candidate) -> toPrice.apply(candidate).compareTo(toPrice.apply(current)) < 0 ? candidate : current));
+        }
+
+        return PartialReport.builder()
+                .maxExpense(maxExpense)
+                .customersWithMaxExpense(customersWithMaxExpense)
+                .customersWithMaxExpenseOnCategory(customersWithMaxExpenseOnCategory)
+                .maxExpensesOnCategory(maxExpensesOnCategory)
+                .customersWithMaxQuantityOfCategory(customersWithMaxQuantityOfCategory)
+                .maxQuantitiesOfCategory(maxQuantitiesOfCategory)
+                .categoriesQuantitiesByAge(categoriesQuantitiesByAge)
+                .categoriesExpenses(categoriesExpenses)
+                .categoriesQuantities(categoriesQuantities)
+                .productsWithMaxPrice(productsWithMaxPrice)
+                .productsWithMinPrice(productsWithMinPrice)
+                .build();
+    }
+
+    /*
+        Wyniki zapytań z ReportQuery poza CUSTOMERS_AND_DEBTS, które nie są agregatem.
+     */
+    public OrdersReport toReport(Set<ReportQuery> queries) {
+        OrdersReport.OrdersReportBuilder report = OrdersReport.builder();
+        if (queries.contains(CUSTOMERS_WITH_MAX_EXPENSE)) {
+            if (customersWithMaxExpense.isEmpty()) {
+                throw new NoSuchElementException("No value present");
+            }
+            report.customersWithMaxExpense(new ArrayList<>(customersWithMaxExpense));
+        }
+        if (queries.contains(CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY)) {
+            report.customersWithMaxExpenseOnCategory(new EnumMap<>(customersWithMaxExpenseOnCategory));
+        }
+        if (queries.contains(MOST_POPULAR_CATEGORY_FOR_AGE) || queries.contains(AGES_WITH_POPULAR_CATEGORIES)) {
+            Map<Integer, List<Category>> mostPopularCategories = mostPopularCategoriesByAge();
+            if (queries.contains(MOST_POPULAR_CATEGORY_FOR_AGE)) {
+                report.mostPopularCategoryForAge(mostPopularCategories);
+            }
+            if (queries.contains(AGES_WITH_POPULAR_CATEGORIES)) {
+                Map<Integer, Category> popularCategories = new HashMap<>();
+                mostPopularCategories.forEach((age, categories) -> popularCategories.put(age, categories.get(0)));
+                report.agesWithPopularCategories(popularCategories);
+            }
+        }
+        if (queries.contains(CATEGORIES_WITH_AVERAGE_PRICES)) {
+            Map<Category, BigDecimal> averagePrices = new EnumMap<>(Category.class);
+            categoriesQuantities.forEach((category, quantity) -> {
+                if (quantity > 0) {
+                    averagePrices.put(category, categoriesExpenses.get(category).divide(BigDecimal.valueOf(quantity), MathContext.DECIMAL128));
+                }
+            });
+            report.categoriesWithAveragePrices(averagePrices);
+        }
+        if (queries.contains(CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE)) {
+            report.categoriesAndProductsWithMaxPrice(new EnumMap<>(productsWithMaxPrice));
+        }
+        if (queries.contains(CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE)) {
+            report.categoriesAndProductsWithMinPrice(new EnumMap<>(productsWithMinPrice));
+        }
+        if (queries.contains(CATEGORIES_AND_CUSTOMERS)) {
+            report.categoriesAndCustomers(new HashMap<>(customersWithMaxQuantityOfCategory));
+        }
+        return report.build();
+    }
+
+    private Map<Integer, List<Category>> mostPopularCategoriesByAge() {
+        Map<Integer, List<Category>> mostPopularCategories = new HashMap<>();
+        categoriesQuantitiesByAge.forEach((age, quantities) -> {
+            long maxQuantity = 0L;
+            for (long quantity : quantities) {
+                maxQuantity = Math.max(maxQuantity, quantity);
+            }
+            if (maxQuantity == 0) {
+                throw new NoSuchElementException("No value present");
+            }
+            List<Category> categories = new ArrayList<>();
+            for (Category category : CATEGORIES) {
+                if (quantities[category.ordinal()] == maxQuantity) {
+                    categories.add(category);
+                }
+            }
+            mostPopularCategories.put(age, categories);
+        });
+        return mostPopularCategories;
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.app.service.report;
+
+public enum ReportQuery {
+    CUSTOMERS_WITH_MAX_EXPENSE,
+    CUSTOMERS_WITH_MAX_EXPENSE_ON_CATEGORY,
+    MOST_POPULAR_CATEGORY_FOR_AGE,
+    AGES_WITH_POPULAR_CATEGORIES,
+    CATEGORIES_WITH_AVERAGE_PRICES,
+    CATEGORIES_AND_PRODUCTS_WITH_MAX_PRICE,
+    CATEGORIES_AND_PRODUCTS_WITH_MIN_PRICE,
+    CATEGORIES_AND_CUSTOMERS,
+    CUSTOMERS_AND_DEBTS
+}
@@ -0,0 +1,251 @@
+package com.app.service.sketch;
+
+import com.app.persistence.converter.CustomerWithProductsConverter;
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.CustomerWithProducts;
+import com.app.persistence.model.Product;
+import com.app.service.exception.OrdersServiceException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.app.persistence.model.CustomerUtils.toAge;
+import static com.app.persistence.model.ProductUtils.toCategory;
+import static com.app.persistence.model.ProductUtils.toPrice;
+
+/*
+    Przybliżone odpowiedniki zapytań OrdersService liczone w stałej pamięci, gdy
+    zakupy napływają strumieniem:
+    - popularność produktów w przedziałach wieku - count-min sketch z kandydatami,
+    - klient kupujący najwięcej z kategorii - count-min sketch po klientach,
+    - liczba różnych klientów kategorii - HyperLogLog,
+    - rozkład cen w kategorii - szkic kwantyli.
+    Sztuk per przedział wieku i kategoria jest tak mało, że liczymy je dokładnie.
+
+    Instancja nie jest bezpieczna wątkowo - każdy wątek lub plik ma własną, a wyniki
+    łączy merge. Całość można zapisać checkpoint i odtworzyć przez restore.
+ */
+public class ApproximateOrdersAnalytics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final SketchConfig config;
+    private final Map<Integer, AgeBand> ageBands = new HashMap<>();
+    private final List<HeavyHitters<Customer>> customersByCategory = new ArrayList<>();
+    private final HyperLogLog[] distinctCustomers = new HyperLogLog[CATEGORIES.length];
+    private final QuantileSketch[] prices = new QuantileSketch[CATEGORIES.length];
+    private long records;
+
+    public ApproximateOrdersAnalytics(SketchConfig config) {
+        if (config == null) {
+            throw new OrdersServiceException("Sketch config is null");
+        }
+        if (config.getAgeBandWidth() < 1 || config.getHeavyHitters() < 1) {
+            throw new OrdersServiceException("Age band width and heavy hitters count have to be >= 1");
+        }
+        this.config = config;
+        for (Category category : CATEGORIES) {
+            customersByCategory.add(new HeavyHitters<>(config.getCustomersCountMinEpsilon(), config.getCountMinDelta(), config.getHeavyHitters()));
+        }
+        Arrays.setAll(distinctCustomers, ordinal -> new HyperLogLog(config.getDistinctCountError()));
+        Arrays.setAll(prices, ordinal -> new QuantileSketch(config.getQuantileAccuracy()));
+    }
+
+    /*
+        Każdy plik jest szkicowany osobno w puli, a szkice są scalane w kolejności plików.
+     */
+    public static ApproximateOrdersAnalytics of(List<String> jsonFilenames, SketchConfig config, int parallelism) {
+        if (parallelism < 1) {
+            throw new OrdersServiceException("Parallelism has to be >= 1");
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> jsonFilenames.parallelStream()
+                            .map(filename -> new ApproximateOrdersAnalytics(config).addFile(filename))
+                            .reduce(ApproximateOrdersAnalytics::merge)
+                            .orElseGet(() -> new ApproximateOrdersAnalytics(config)))
+                    .join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public ApproximateOrdersAnalytics addFile(String jsonFilename) {
+        try {
+            new CustomerWithProductsConverter(jsonFilename).forEach(this::add);
+        } catch (RuntimeException e) {
+            throw new OrdersServiceException("Cannot load json file %s: %s".formatted(jsonFilename, e.getMessage()));
+        }
+        return this;
+    }
+
+    public void add(CustomerWithProducts customerWithProducts) {
+        Customer customer = customerWithProducts.getCustomer();
+        AgeBand ageBand = ageBands.computeIfAbsent(Math.floorDiv(toAge.apply(customer), config.getAgeBandWidth()),
+                band -> new AgeBand(config));
+        String customerKey = Hashing.keyOf(customer);
+        long customerHash = Hashing.hash(customerKey);
+        long[] quantities = new long[CATEGORIES.length];
+        for (Product product : customerWithProducts.getProducts()) {
+            int ordinal = toCategory.apply(product).ordinal();
+            quantities[ordinal]++;
+            ageBand.quantities[ordinal]++;
+            ageBand.products.add(Hashing.keyOf(product), product, 1L);
+            prices[ordinal].add(toPrice.apply(product).doubleValue(), 1L);
+        }
+        for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+            if (quantities[ordinal] > 0) {
+                customersByCategory.get(ordinal).add(customerKey, customer, quantities[ordinal]);
+                distinctCustomers[ordinal].add(customerHash);
+            }
+        }
+        records++;
+    }
+
+    /*
+        Dołącza szkice z innej instancji (innego pliku albo wątku) i zwraca this.
+     */
+    public ApproximateOrdersAnalytics merge(ApproximateOrdersAnalytics other) {
+        if (!config.equals(other.config)) {
+            throw new OrdersServiceException("Cannot merge analytics with different configs: %s and %s".formatted(config, other.config));
+        }
+        other.ageBands.forEach((band, otherAgeBand) -> ageBands.computeIfAbsent(band, newBand -> new AgeBand(config)).merge(otherAgeBand));
+        for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+            customersByCategory.get(ordinal).merge(other.customersByCategory.get(ordinal));
+            distinctCustomers[ordinal].merge(other.distinctCustomers[ordinal]);
+            prices[ordinal].merge(other.prices[ordinal]);
+        }
+        records += other.records;
+        return this;
+    }
+
+    public void checkpoint(String filename) {
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(Path.of(filename))))) {
+            output.writeObject(this);
+        } catch (IOException e) {
+            throw new OrdersServiceException("Cannot write checkpoint %s: %s".formatted(filename, e.getMessage()));
+        }
+    }
+
+    public static ApproximateOrdersAnalytics restore(String filename) {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(Path.of(filename))))) {
+            return (ApproximateOrdersAnalytics) input.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new OrdersServiceException("Cannot read checkpoint %s: %s".formatted(filename, e.getMessage()));
+        }
+    }
+
+    public SketchConfig getConfig() {
+        return config;
+    }
+
+    public long getRecordsCount() {
+        return records;
+    }
+
+    /*
+        Najpopularniejsze kategorie w przedziałach wieku; kluczem jest najniższy wiek przedziału.
+     */
+    public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+        Map<Integer, List<Category>> mostPopularCategories = new HashMap<>();
+        ageBands.forEach((band, ageBand) -> {
+            long maxQuantity = Arrays.stream(ageBand.quantities).max().orElse(0L);
+            if (maxQuantity > 0) {
+                List<Category> categories = new ArrayList<>();
+                for (Category category : CATEGORIES) {
+                    if (ageBand.quantities[category.ordinal()] == maxQuantity) {
+                        categories.add(category);
+                    }
+                }
+                mostPopularCategories.put(band * config.getAgeBandWidth(), categories);
+            }
+        });
+        return mostPopularCategories;
+    }
+
+    /*
+        Klient z największą szacowaną liczbą kupionych produktów kategorii.
+     */
+    public Map<Category, Customer> getCategoriesAndCustomers() {
+        Map<Category, Customer> customers = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            customersByCategory.get(category.ordinal()).top(1).forEach(customer -> customers.put(category, customer));
+        }
+        return customers;
+    }
+
+    public List<Customer> getTopCustomersOfCategory(Category category, int limit) {
+        return customersByCategory.get(ordinalOf(category)).top(limit);
+    }
+
+    /*
+        Szacowana liczba sztuk produktu kupionych przez klientów z przedziału wieku age.
+     */
+    public long estimateProductPopularity(int age, Product product) {
+        return Optional.ofNullable(ageBands.get(Math.floorDiv(age, config.getAgeBandWidth())))
+                .map(ageBand -> ageBand.products.estimate(Hashing.keyOf(product)))
+                .orElse(0L);
+    }
+
+    public List<Product> getTopProducts(int age, int limit) {
+        return Optional.ofNullable(ageBands.get(Math.floorDiv(age, config.getAgeBandWidth())))
+                .map(ageBand -> ageBand.products.top(limit))
+                .orElse(List.of());
+    }
+
+    public long estimateDistinctCustomers(Category category) {
+        return distinctCustomers[ordinalOf(category)].estimate();
+    }
+
+    /*
+        Kwantyl ceny produktów kategorii (ważony liczbą sztuk); null, gdy nic nie kupiono.
+     */
+    public BigDecimal estimatePriceQuantile(Category category, double quantile) {
+        double price = prices[ordinalOf(category)].quantile(quantile);
+        return Double.isNaN(price) ? null : BigDecimal.valueOf(price);
+    }
+
+    private static int ordinalOf(Category category) {
+        if (category == null) {
+            throw new OrdersServiceException("Category is null");
+        }
+        return category.ordinal();
+    }
+
+    private static final class AgeBand implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] quantities = new long[CATEGORIES.length];
+        private final HeavyHitters<Product> products;
+
+        private AgeBand(SketchConfig config) {
+            this.products = new HeavyHitters<>(config.getCountMinEpsilon(), config.getCountMinDelta(), config.getHeavyHitters());
+        }
+
+        private void merge(AgeBand other) {
+            for (int ordinal = 0; ordinal < CATEGORIES.length; ordinal++) {
+                quantities[ordinal] += other.quantities[ordinal];
+            }
+            products.merge(other.products);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.app.service.sketch;
+
+import com.app.service.exception.OrdersServiceException;
+
+import java.io.Serializable;
+
+/*
+    Count-min sketch: depth wierszy po width liczników. Oszacowanie nigdy nie jest
+    mniejsze od dokładnej liczności, a z prawdopodobieństwem 1 - delta przekracza ją
+    najwyżej o epsilon * suma wszystkich dodanych liczności. Dodawanie jest
+    konserwatywne - podnosimy tylko liczniki poniżej nowego oszacowania, co przy
+    płaskich rozkładach wyraźnie zmniejsza zawyżenie, a scalanie sumą nadal daje
+    górne ograniczenie.
+ */
+public final class CountMinSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long totalCount;
+
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new OrdersServiceException("Epsilon and delta have to be in (0, 1)");
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new long[width * depth];
+    }
+
+    public void add(long hash, long count) {
+        long updated = estimate(hash) + count;
+        long secondHash = Hashing.mix(hash ^ 0x9e3779b97f4a7c15L);
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, secondHash, row);
+            counters[index] = Math.max(counters[index], updated);
+        }
+        totalCount += count;
+    }
+
+    public long estimate(long hash) {
+        long secondHash = Hashing.mix(hash ^ 0x9e3779b97f4a7c15L);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + column(hash, secondHash, row)]);
+        }
+        return estimate;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (width != other.width || depth != other.depth) {
+            throw new OrdersServiceException("Cannot merge count-min sketches %dx%d and %dx%d"
+                    .formatted(depth, width, other.depth, other.width));
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /*
+        Kolejne wiersze z dwóch skrótów: h1 + row * h2 (Kirsch-Mitzenmacher).
+     */
+    private int column(long hash, long secondHash, int row) {
+        return (int) Long.remainderUnsigned(hash + row * secondHash, width);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.app.service.sketch;
+
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+
+import static com.app.persistence.model.ProductUtils.toCategory;
+import static com.app.persistence.model.ProductUtils.toName;
+import static com.app.persistence.model.ProductUtils.toPrice;
+
+/*
+    64-bitowe skróty niezależne od JVM (hashCode enuma już taki nie jest), więc szkice
+    policzone w różnych procesach i odczytane z checkpointu dają się scalać.
+ */
+final class Hashing {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+    }
+
+    static String keyOf(Product product) {
+        return toName.apply(product) + '|' + toCategory.apply(product) + '|' + toPrice.apply(product);
+    }
+
+    static String keyOf(Customer customer) {
+        return customer.getName() + '|' + customer.getSurname() + '|' + customer.getAge() + '|' + customer.getCash();
+    }
+
+    static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /*
+        Finalizer z MurmurHash3 - rozprowadza bity, żeby starsze i młodsze bity były równie losowe.
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.app.service.sketch;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Najczęstsze elementy: liczności szacuje count-min sketch, a obok trzymamy
+    najwyżej capacity kandydatów z największym oszacowaniem. Pamięć jest stała.
+
+    Kandydaci leżą w TreeMap uporządkowanej po (oszacowanie, klucz), więc najmniejszy
+    do wyrzucenia jest na początku, a dodanie kosztuje O(log capacity).
+ */
+final class HeavyHitters<T extends Serializable> implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private final CountMinSketch sketch;
+    private final int capacity;
+    private final TreeMap<Candidate, T> candidates = new TreeMap<>();
+    private final Map<String, Long> estimates = new HashMap<>();
+
+    HeavyHitters(double epsilon, double delta, int capacity) {
+        this.sketch = new CountMinSketch(epsilon, delta);
+        this.capacity = capacity;
+    }
+
+    void add(String key, T element, long count) {
+        long hash = Hashing.hash(key);
+        sketch.add(hash, count);
+        offer(key, element, sketch.estimate(hash));
+    }
+
+    long estimate(String key) {
+        return sketch.estimate(Hashing.hash(key));
+    }
+
+    /*
+        Kandydaci od największego aktualnego oszacowania; przy równych decyduje klucz,
+        żeby wynik nie zależał od kolejności scalania.
+     */
+    List<T> top(int limit) {
+        return reestimated(candidates).entrySet().stream()
+                .limit(limit)
+                .map(Map.Entry::getValue)
+                .toList();
+    }
+
+    void merge(HeavyHitters<T> other) {
+        sketch.merge(other.sketch);
+        TreeMap<Candidate, T> merged = new TreeMap<>(candidates);
+        merged.putAll(other.candidates);
+        candidates.clear();
+        estimates.clear();
+        reestimated(merged).entrySet().stream()
+                .limit(capacity)
+                .forEach(entry -> {
+                    candidates.put(entry.getKey(), entry.getValue());
+                    estimates.put(entry.getKey().key(), entry.getKey().estimate());
+                });
+    }
+
+    /*
+        Kandydaci z bieżącymi oszacowaniami, od największego; klucz występujący
+        w kilku wpisach (po scaleniu) zostaje raz.
+     */
+    private Map<Candidate, T> reestimated(Map<Candidate, T> current) {
+        Map<String, T> elements = new HashMap<>();
+        current.forEach((candidate, element) -> elements.put(candidate.key(), element));
+        TreeMap<Candidate, T> reestimated = new TreeMap<>();
+        elements.forEach((key, element) -> reestimated.put(new Candidate(estimate(key), key), element));
+        return reestimated.descendingMap();
+    }
+
+    private void offer(String key, T element, long estimate) {
+        Long current = estimates.get(key);
+        if (current != null) {
+            candidates.remove(new Candidate(current, key));
+        } else if (estimates.size() >= capacity) {
+            Candidate smallest = candidates.firstKey();
+            if (estimate <= smallest.estimate()) {
+                return;
+            }
+            candidates.pollFirstEntry();
+            estimates.remove(smallest.key());
+        }
+        candidates.put(new Candidate(estimate, key), element);
+        estimates.put(key, estimate);
+    }
+
+    /*
+        Rosnąco po oszacowaniu, a przy równych malejąco po kluczu - odwrócony
+        porządek daje ranking top().
+     */
+    private record Candidate(long estimate, String key) implements Comparable<Candidate>, Serializable {
+
+        @Override
+        public int compareTo(Candidate other) {
+            int comparison = Long.compare(estimate, other.estimate);
+            return comparison != 0 ? comparison : other.key.compareTo(key);
+        }
+    }
+
+}
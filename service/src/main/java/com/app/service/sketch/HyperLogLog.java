@@ -0,0 +1,99 @@
+package com.app.service.sketch;
+
+import com.app.service.exception.OrdersServiceException;
+
+import java.io.Serializable;
+
+/*
+    HyperLogLog: liczba różnych elementów z 2^precision rejestrów po bajcie. Błąd
+    względny to około 1.04 / sqrt(2^precision); precyzja jest dobierana z zadanego błędu.
+ */
+public final class HyperLogLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1) {
+            throw new OrdersServiceException("Relative error has to be in (0, 1)");
+        }
+        double registersCount = Math.pow(1.04 / relativeError, 2);
+        this.precision = Math.min(MAX_PRECISION, Math.max(MIN_PRECISION, (int) Math.ceil(Math.log(registersCount) / Math.log(2))));
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /*
+        Estymator Ertla ("New cardinality estimation algorithms for HyperLogLog sketches") -
+        bez poprawek empirycznych jest nieobciążony w całym zakresie, także tam, gdzie
+        klasyczny HLL przechodzi z liczenia liniowego na średnią harmoniczną.
+     */
+    public long estimate() {
+        int registersCount = registers.length;
+        int maxRank = Long.SIZE - precision;
+        int[] histogram = new int[maxRank + 2];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        double z = registersCount * tau(1.0 - (double) histogram[maxRank + 1] / registersCount);
+        for (int rank = maxRank; rank >= 1; rank--) {
+            z = 0.5 * (z + histogram[rank]);
+        }
+        z += registersCount * sigma((double) histogram[0] / registersCount);
+        return Math.round(registersCount * (registersCount / (2.0 * Math.log(2) * z)));
+    }
+
+    public void merge(HyperLogLog other) {
+        if (precision != other.precision) {
+            throw new OrdersServiceException("Cannot merge HyperLogLog of precision %d and %d".formatted(precision, other.precision));
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+    }
+
+    private static double sigma(double x) {
+        if (x == 1.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1.0;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0.0 || x == 1.0) {
+            return 0.0;
+        }
+        double y = 1.0;
+        double z = 1.0 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= Math.pow(1.0 - x, 2) * y;
+        } while (z != previous);
+        return z / 3.0;
+    }
+
+}
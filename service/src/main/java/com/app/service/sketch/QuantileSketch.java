@@ -0,0 +1,133 @@
+package com.app.service.sketch;
+
+import com.app.service.exception.OrdersServiceException;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/*
+    Szkic kwantyli z gwarancją błędu względnego (w stylu DDSketch): wartość x trafia
+    do przedziału ceil(log_gamma |x|), gamma = (1 + accuracy) / (1 - accuracy), więc
+    każdy odczytany kwantyl różni się od dokładnego najwyżej o accuracy * wartość.
+    Liczba przedziałów rośnie z logarytmem zakresu wartości, a nie z liczbą wartości.
+ */
+public final class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final Bins positive = new Bins();
+    private final Bins negative = new Bins();
+    private long zeroCount;
+    private long count;
+
+    public QuantileSketch(double accuracy) {
+        if (accuracy <= 0 || accuracy >= 1) {
+            throw new OrdersServiceException("Accuracy has to be in (0, 1)");
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value, long occurrences) {
+        if (value > 0) {
+            positive.add(index(value), occurrences);
+        } else if (value < 0) {
+            negative.add(index(-value), occurrences);
+        } else {
+            zeroCount += occurrences;
+        }
+        count += occurrences;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /*
+        Kwantyl q z [0, 1]; NaN, gdy szkic jest pusty.
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new OrdersServiceException("Quantile has to be in [0, 1]");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                return -value(negative.offset + i);
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0.0;
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                return value(positive.offset + i);
+            }
+        }
+        return value(positive.offset + positive.counts.length - 1);
+    }
+
+    public void merge(QuantileSketch other) {
+        if (accuracy != other.accuracy) {
+            throw new OrdersServiceException("Cannot merge quantile sketches of accuracy %s and %s".formatted(accuracy, other.accuracy));
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /*
+        Gęsta tablica liczników przedziałów od offset, rozszerzana w obie strony.
+     */
+    private static final class Bins implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int offset;
+        private long[] counts = new long[0];
+
+        private void add(int index, long occurrences) {
+            if (counts.length == 0) {
+                offset = index;
+                counts = new long[1];
+            } else if (index < offset) {
+                long[] grown = new long[counts.length + offset - index];
+                System.arraycopy(counts, 0, grown, offset - index, counts.length);
+                counts = grown;
+                offset = index;
+            } else if (index >= offset + counts.length) {
+                counts = Arrays.copyOf(counts, index - offset + 1);
+            }
+            counts[index - offset] += occurrences;
+        }
+
+        private void merge(Bins other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+    }
+
+}
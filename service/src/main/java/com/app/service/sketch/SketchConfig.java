@@ -0,0 +1,62 @@
+package com.app.service.sketch;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+/*
+    Granice błędów szkiców. Scalać można tylko analizy z tą samą konfiguracją.
+ */
+@Builder
+@EqualsAndHashCode
+@Getter
+@ToString
+public class SketchConfig implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /*
+        Szerokość przedziału wieku w latach.
+     */
+    @Builder.Default
+    private final int ageBandWidth = 1;
+
+    /*
+        Count-min: nadwyżka oszacowania to najwyżej epsilon * łączna liczność,
+        z prawdopodobieństwem 1 - delta. Produktów w przedziale wieku jest niewiele,
+        a klientów kategorii tyle, ile wszystkich klientów, więc szkic klientów
+        potrzebuje mniejszego epsilon (jest ich tylko po jednym na kategorię).
+     */
+    @Builder.Default
+    private final double countMinEpsilon = 0.001;
+    @Builder.Default
+    private final double customersCountMinEpsilon = 0.00005;
+    @Builder.Default
+    private final double countMinDelta = 0.01;
+
+    /*
+        Ilu najczęstszych kandydatów (produktów, klientów) pamiętać w każdym szkicu.
+     */
+    @Builder.Default
+    private final int heavyHitters = 16;
+
+    /*
+        Błąd względny HyperLogLog dla liczby różnych klientów.
+     */
+    @Builder.Default
+    private final double distinctCountError = 0.01;
+
+    /*
+        Błąd względny kwantyli cen.
+     */
+    @Builder.Default
+    private final double quantileAccuracy = 0.01;
+
+    public static SketchConfig defaults() {
+        return SketchConfig.builder().build();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBitmapTest {
+
+    private static final int POSITIONS = 300_000;
+
+    /*
+        Gęstości dobrane tak, żeby kawałki były i tablicami, i bitmapami, a operacje
+        przechodziły między obiema postaciami.
+     */
+    @Test
+    void setOperationsMatchBitSet() {
+        Random random = new Random(7);
+        double[] densities = {0.001, 0.03, 0.2, 0.9};
+        List<BitSet> expected = new ArrayList<>();
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        for (double density : densities) {
+            BitSet bitSet = new BitSet();
+            CompressedBitmap bitmap = new CompressedBitmap();
+            for (int position = 0; position < POSITIONS; position++) {
+                if (random.nextDouble() < density) {
+                    bitSet.set(position);
+                }
+            }
+            // dodawanie w losowej kolejności, jak kategorie przy dopisywaniu zakupów
+            List<Integer> positions = new ArrayList<>(bitSet.stream().boxed().toList());
+            Collections.shuffle(positions, random);
+            positions.forEach(bitmap::add);
+            expected.add(bitSet);
+            bitmaps.add(bitmap);
+        }
+        for (int i = 0; i < bitmaps.size(); i++) {
+            assertSame(expected.get(i), bitmaps.get(i));
+            for (int j = 0; j < bitmaps.size(); j++) {
+                BitSet and = (BitSet) expected.get(i).clone();
+                and.and(expected.get(j));
+                assertSame(and, bitmaps.get(i).and(bitmaps.get(j)));
+                BitSet or = (BitSet) expected.get(i).clone();
+                or.or(expected.get(j));
+                assertSame(or, bitmaps.get(i).or(bitmaps.get(j)));
+                BitSet andNot = (BitSet) expected.get(i).clone();
+                andNot.andNot(expected.get(j));
+                assertSame(andNot, bitmaps.get(i).andNot(bitmaps.get(j)));
+            }
+        }
+    }
+
+    @Test
+    void sparseBitmapIsSmallerThanBitSet() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int position = 0; position < POSITIONS; position += 100) {
+            bitmap.add(position);
+        }
+        assertEquals(POSITIONS / 100, bitmap.cardinality());
+        assertTrue(bitmap.sizeInBytes() < POSITIONS / 8 / 4);
+    }
+
+    private static void assertSame(BitSet expected, CompressedBitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        List<Integer> positions = new ArrayList<>();
+        bitmap.forEach(positions::add);
+        assertEquals(expected.stream().boxed().toList(), positions);
+        for (int position = 0; position < POSITIONS; position += 997) {
+            assertEquals(expected.get(position), bitmap.contains(position));
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.app.service.OrdersTestData.writeFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DebtsPageTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 100, 10_000})
+    void pagesWalkAllCustomersByDebt(int limit) throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 5L, 2, 1_000));
+        assertEquals(sortedDebts(ordersService, false), allPages(ordersService, limit, false));
+        assertEquals(sortedDebts(ordersService, true), allPages(ordersService, limit, true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 13})
+    void pagesFollowAppends(int limit) throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 6L, 1, 500));
+        ordersService.append(writeFiles(directory, "appended", 7L, 1, 300));
+        ordersService.append(writeFiles(directory, "appended-again", 8L, 1, 50));
+        assertEquals(sortedDebts(ordersService, false), allPages(ordersService, limit, false));
+        assertEquals(sortedDebts(ordersService, true), allPages(ordersService, limit, true));
+    }
+
+    /*
+        Kursor to klucz (saldo, pozycja), a nie indeks - po dopisaniu danych strona
+        zaczyna się za tym kluczem w nowym porządku.
+     */
+    @Test
+    void cursorFromBeforeAppendSeeksIntoNewOrder() throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 9L, 1, 500));
+        String cursor = ordersService.getCustomersByDebt(null, 20, false).nextCursor();
+        ordersService.append(writeFiles(directory, "appended", 10L, 1, 300));
+        List<CustomerDebt> sorted = sortedDebts(ordersService, false);
+        List<CustomerDebt> page = ordersService.getCustomersByDebt(cursor, 20, false).debts();
+        assertFalse(page.isEmpty());
+        int first = sorted.indexOf(page.get(0));
+        assertEquals(sorted.subList(first, first + page.size()), page);
+        BigDecimal cursorDebt = new BigDecimal(cursor.substring(0, cursor.lastIndexOf(':')));
+        assertTrue(page.get(0).debt().compareTo(cursorDebt) >= 0);
+        assertTrue(first == 0 || sorted.get(first - 1).debt().compareTo(cursorDebt) <= 0);
+    }
+
+    @Test
+    void lastPageHasNoCursor() throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 11L, 1, 200));
+        int customers = sortedDebts(ordersService, false).size();
+        assertNull(ordersService.getCustomersByDebt(null, customers + 1, false).nextCursor());
+    }
+
+    private static List<CustomerDebt> allPages(OrdersService ordersService, int limit, boolean debtorsOnly) {
+        List<CustomerDebt> debts = new ArrayList<>();
+        String cursor = null;
+        do {
+            DebtsPage page = ordersService.getCustomersByDebt(cursor, limit, debtorsOnly);
+            assertTrue(page.debts().size() <= limit);
+            debts.addAll(page.debts());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return debts;
+    }
+
+    // strumień jest w kolejności dodania klientów, więc sortowanie stabilne rozstrzyga remisy pozycją
+    private static List<CustomerDebt> sortedDebts(OrdersService ordersService, boolean debtorsOnly) {
+        return ordersService.streamCustomersAndDebts(debtorsOnly)
+                .sorted(Comparator.comparing(CustomerDebt::debt))
+                .toList();
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.app.service;
+
+import com.app.service.exception.OrdersServiceException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class IngestionPipelineTest {
+
+    private static final int FILES = 4;
+    private static final int RECORDS_PER_FILE = 20_000;
+    private static final int INVALID_RECORD = 15_000;
+
+    @TempDir
+    static Path directory;
+
+    private static final List<String> filenames = new ArrayList<>();
+
+    @BeforeAll
+    static void writeFiles() throws IOException {
+        for (int file = 0; file < FILES; file++) {
+            Path path = directory.resolve("customers%d.json".formatted(file));
+            try (Writer writer = Files.newBufferedWriter(path)) {
+                writer.write('[');
+                for (int record = 0; record < RECORDS_PER_FILE; record++) {
+                    int age = file == 0 && record == INVALID_RECORD ? 10 : 18 + record % 60;
+                    writer.write((record == 0 ? "" : ",") + """
+                            {"customer":{"name":"A","surname":"B%d","age":%d,"cash":1000},\
+                            "products":[{"name":"P%d","price":10,"category":"KSIAZKA"}]}"""
+                            .formatted(record % 5_000, age, record % 100));
+                }
+                writer.write(']');
+            }
+            filenames.add(path.toString());
+        }
+    }
+
+    /*
+        Błąd walidacji w trybie FAIL_FAST przy pełnych kolejkach nie może zawiesić ładowania.
+     */
+    @RepeatedTest(5)
+    void failFastValidationErrorStopsParallelLoading() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(OrdersServiceException.class, () -> new OrdersService(filenames, 2)));
+    }
+
+}
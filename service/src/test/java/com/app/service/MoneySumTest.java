@@ -0,0 +1,137 @@
+package com.app.service;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+    Wyniki Money i MoneySum porównywane z tym samym rachunkiem na BigDecimal:
+    ta sama wartość i ta sama skala (equals, nie compareTo).
+ */
+class MoneySumTest {
+
+    private static final int OPERATIONS = 2_000;
+
+    @RepeatedTest(20)
+    void sumsMatchBigDecimal(RepetitionInfo repetition) {
+        Random random = new Random(repetition.getCurrentRepetition());
+        MoneySum sum = new MoneySum();
+        BigDecimal expected = BigDecimal.ZERO;
+        List<BigDecimal> prices = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            BigDecimal price = randomAmount(random);
+            long quantity = randomQuantity(random);
+            prices.add(price);
+            sum.add(Money.of(price), quantity);
+            expected = expected.add(price.multiply(BigDecimal.valueOf(quantity)));
+            assertEquals(expected, sum.toBigDecimal(), () -> "after adding %s x %d".formatted(price, quantity));
+            assertEquals(expected.signum(), sum.signum());
+        }
+        for (BigDecimal price : prices.subList(0, 100)) {
+            assertEquals(price.subtract(expected), sum.subtractFrom(Money.of(price)));
+        }
+    }
+
+    @RepeatedTest(20)
+    void mergedSumsMatchBigDecimal(RepetitionInfo repetition) {
+        Random random = new Random(1_000 + repetition.getCurrentRepetition());
+        MoneySum merged = new MoneySum();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int part = 0; part < 50; part++) {
+            MoneySum partSum = new MoneySum();
+            BigDecimal expectedPart = BigDecimal.ZERO;
+            for (int i = 0; i < 20; i++) {
+                BigDecimal price = randomAmount(random);
+                long quantity = randomQuantity(random);
+                partSum.add(Money.of(price), quantity);
+                expectedPart = expectedPart.add(price.multiply(BigDecimal.valueOf(quantity)));
+            }
+            MoneySum copy = partSum.copy();
+            merged.add(partSum);
+            expected = expected.add(expectedPart);
+            assertEquals(expectedPart, copy.toBigDecimal());
+            assertEquals(expected, merged.toBigDecimal());
+            assertEquals(Integer.signum(expectedPart.compareTo(expected)), Integer.signum(copy.compareTo(merged)));
+        }
+    }
+
+    @RepeatedTest(10)
+    void comparisonsMatchBigDecimal(RepetitionInfo repetition) {
+        Random random = new Random(2_000 + repetition.getCurrentRepetition());
+        for (int i = 0; i < OPERATIONS; i++) {
+            BigDecimal first = randomAmount(random);
+            BigDecimal second = random.nextInt(10) == 0 ? first.setScale(first.scale() + 1) : randomAmount(random);
+            Money firstMoney = Money.of(first);
+            Money secondMoney = Money.of(second);
+            assertEquals(Integer.signum(first.compareTo(second)), Integer.signum(firstMoney.compareTo(secondMoney)),
+                    () -> "%s vs %s".formatted(first, second));
+            assertEquals(first, firstMoney.toBigDecimal());
+            assertEquals(first.signum(), firstMoney.signum());
+        }
+    }
+
+    /*
+        Granice long: przepełnienie mnożenia, dodawania i skalowania przechodzi na
+        BigDecimal bez utraty dokładności, a dalsze dodawanie nadal się zgadza.
+     */
+    @Test
+    void overflowFallsBackToBigDecimal() {
+        List<BigDecimal> amounts = List.of(
+                BigDecimal.valueOf(Long.MAX_VALUE),
+                BigDecimal.valueOf(Long.MAX_VALUE, 2),
+                BigDecimal.valueOf(Long.MIN_VALUE),
+                BigDecimal.valueOf(Long.MIN_VALUE, 18),
+                BigDecimal.ONE,
+                new BigDecimal("0.000000000000000000001"),
+                new BigDecimal("-0.01"),
+                new BigDecimal("1E+3"),
+                new BigDecimal(BigInteger.ONE.shiftLeft(70), 4),
+                BigDecimal.valueOf(92_233_720_368_547_758L, 1));
+        long[] quantities = {1L, 2L, -1L, 1_000L, Long.MAX_VALUE / 3};
+        for (BigDecimal first : amounts) {
+            for (BigDecimal second : amounts) {
+                for (long quantity : quantities) {
+                    MoneySum sum = new MoneySum();
+                    sum.add(Money.of(first), quantity);
+                    sum.add(Money.of(second), 1L);
+                    sum.add(Money.of(BigDecimal.ONE), 1L);
+                    BigDecimal expected = BigDecimal.ZERO
+                            .add(first.multiply(BigDecimal.valueOf(quantity)))
+                            .add(second)
+                            .add(BigDecimal.ONE);
+                    assertEquals(expected, sum.toBigDecimal(), () -> "%s x %d + %s + 1".formatted(first, quantity, second));
+                    assertEquals(second.subtract(expected), sum.subtractFrom(Money.of(second)));
+                    assertEquals(Integer.signum(first.compareTo(second)), Integer.signum(Money.of(first).compareTo(Money.of(second))));
+                }
+            }
+        }
+    }
+
+    /*
+        Kwoty z różnymi skalami (0-20), od groszy do wartości bliskich granicy long,
+        w połowie ujemne.
+     */
+    private static BigDecimal randomAmount(Random random) {
+        int scale = random.nextInt(5) == 0 ? random.nextInt(21) : random.nextInt(3);
+        long unscaled = switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(100_000);
+            case 1 -> random.nextLong() >> random.nextInt(64);
+            case 2 -> Long.MAX_VALUE - random.nextInt(1_000);
+            default -> random.nextInt(1_000_000_000);
+        };
+        return BigDecimal.valueOf(random.nextBoolean() ? unscaled : -unscaled, scale);
+    }
+
+    private static long randomQuantity(Random random) {
+        return random.nextInt(10) == 0 ? random.nextLong() >> random.nextInt(64) : 1 + random.nextInt(10);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.app.service.OrdersTestData.assertSameResults;
+import static com.app.service.OrdersTestData.writeFiles;
+
+class OrdersSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void restoredServiceAnswersLikeOriginal(int parallelism) throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 1L, 3, 2_000));
+        String snapshot = directory.resolve("orders.snapshot").toString();
+        ordersService.saveSnapshot(snapshot);
+        assertSameResults(ordersService, OrdersService.fromSnapshot(snapshot, parallelism));
+    }
+
+    /*
+        Kolejność produktów klienta w snapshocie zależy od map, więc porównujemy
+        odpowiedzi po dwóch kolejnych zapisach i odczytach, a nie bajty plików.
+     */
+    @Test
+    void repeatedRoundTripKeepsResults() throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 2L, 2, 2_000));
+        String first = directory.resolve("first.snapshot").toString();
+        String second = directory.resolve("second.snapshot").toString();
+        ordersService.saveSnapshot(first);
+        OrdersService.fromSnapshot(first).saveSnapshot(second);
+        assertSameResults(ordersService, OrdersService.fromSnapshot(second));
+    }
+
+    @Test
+    void restoredServiceAcceptsAppends() throws IOException {
+        List<String> appended = writeFiles(directory, "appended", 3L, 1, 500);
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 4L, 2, 1_000));
+        String snapshot = directory.resolve("orders.snapshot").toString();
+        ordersService.saveSnapshot(snapshot);
+        OrdersService restored = OrdersService.fromSnapshot(snapshot);
+        ordersService.append(appended);
+        restored.append(appended);
+        assertSameResults(ordersService, restored);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.app.service;
+
+import com.app.persistence.model.Category;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+    Losowe, ale powtarzalne pliki zamówień do testów zgodności implementacji
+    OrdersQueries: klienci powtarzają się między rekordami i plikami, ceny mają
+    skale 0-2, a każda kategoria ma zakupy.
+ */
+public final class OrdersTestData {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int CUSTOMERS = 400;
+    private static final int PRODUCTS = 150;
+
+    private OrdersTestData() {
+    }
+
+    public static List<String> writeFiles(Path directory, String prefix, long seed, int files, int recordsPerFile) throws IOException {
+        Random random = new Random(seed);
+        List<String> filenames = new ArrayList<>();
+        for (int file = 0; file < files; file++) {
+            Path path = directory.resolve("%s-%d.json".formatted(prefix, file));
+            try (Writer writer = Files.newBufferedWriter(path)) {
+                writer.write('[');
+                for (int record = 0; record < recordsPerFile; record++) {
+                    writer.write(record == 0 ? "" : ",");
+                    writer.write(record(random));
+                }
+                writer.write(']');
+            }
+            filenames.add(path.toString());
+        }
+        return filenames;
+    }
+
+    private static String record(Random random) {
+        int customer = random.nextInt(CUSTOMERS);
+        StringBuilder products = new StringBuilder();
+        int productsCount = 1 + random.nextInt(5);
+        for (int i = 0; i < productsCount; i++) {
+            int product = random.nextInt(PRODUCTS);
+            products.append(i == 0 ? "" : ",").append("""
+                    {"name":"PRODUKT%d","category":"%s","price":%s}""".formatted(product, CATEGORIES[product % CATEGORIES.length], price(product)));
+        }
+        return """
+                {"customer":{"name":"IMIĘ%d","surname":"NAZWISKO%d","age":%d,"cash":%s},"products":[%s]}"""
+                .formatted(customer % 17, customer, 18 + customer % 50, BigDecimal.valueOf(customer * 7919L % 500_000, customer % 3), products);
+    }
+
+    // ta sama cena dla produktu w każdym rekordzie, różne skale między produktami
+    private static BigDecimal price(int product) {
+        return BigDecimal.valueOf(100L + product * 7_919L % 300_000, product % 3);
+    }
+
+    public static void assertSameResults(OrdersQueries expected, OrdersQueries actual) {
+        assertEquals(expected.getCustomersWithMaxExpense(), actual.getCustomersWithMaxExpense());
+        for (Category category : CATEGORIES) {
+            assertEquals(expected.getCustomerWithMaxExpenseOnCategory(category), actual.getCustomerWithMaxExpenseOnCategory(category));
+            assertEquals(expected.getTopCustomersByExpenseOnCategory(category, 25), actual.getTopCustomersByExpenseOnCategory(category, 25));
+        }
+        assertEquals(expected.findMostPopularCategoryForAge(), actual.findMostPopularCategoryForAge());
+        assertEquals(expected.getAgesWithPopularCategories(), actual.getAgesWithPopularCategories());
+        assertEquals(expected.getCategoriesWithAveragePrices(), actual.getCategoriesWithAveragePrices());
+        assertEquals(expected.getCategoriesAndProductsWithMaxPrice(), actual.getCategoriesAndProductsWithMaxPrice());
+        assertEquals(expected.getCategoriesAndProductsWithMinPrice(), actual.getCategoriesAndProductsWithMinPrice());
+        assertEquals(expected.getCategoriesAndCustomers(), actual.getCategoriesAndCustomers());
+        assertEquals(expected.getCustomersAndDebts(), actual.getCustomersAndDebts());
+        assertEquals(expected.getCustomersRankedByExpense(0, 50), actual.getCustomersRankedByExpense(0, 50));
+        assertEquals(expected.getCustomersRankedByExpense(37, 20), actual.getCustomersRankedByExpense(37, 20));
+        assertEquals(expected.getTopCustomersByExpenseForAge(30, 40, 20), actual.getTopCustomersByExpenseForAge(30, 40, 20));
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.app.service.cache;
+
+import com.app.persistence.model.Category;
+import com.app.persistence.model.Customer;
+import com.app.persistence.model.Product;
+import com.app.service.OrdersQueries;
+import com.app.service.OrdersService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.app.service.OrdersTestData.assertSameResults;
+import static com.app.service.OrdersTestData.writeFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingOrdersQueriesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void computesOncePerDataVersion() {
+        CountingQueries ordersQueries = new CountingQueries();
+        CachingOrdersQueries cache = new CachingOrdersQueries(ordersQueries, 100, 1_000);
+        List<Customer> first = cache.getCustomersRankedByExpense(0, 3);
+        assertSame(first, cache.getCustomersRankedByExpense(0, 3));
+        assertEquals(1, ordersQueries.computations.get());
+        cache.getCustomersRankedByExpense(1, 3);
+        assertEquals(2, ordersQueries.computations.get());
+
+        ordersQueries.dataVersion++;
+        assertNotSame(first, cache.getCustomersRankedByExpense(0, 3));
+        assertEquals(3, ordersQueries.computations.get());
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(1, stats.invalidations());
+        assertEquals(1, stats.entries());
+    }
+
+    /*
+        Wątki pytające o ten sam brakujący wpis czekają na jedno obliczenie.
+     */
+    @Test
+    void concurrentMissesShareOneComputation() throws Exception {
+        CountingQueries ordersQueries = new CountingQueries();
+        ordersQueries.started = new CountDownLatch(1);
+        ordersQueries.release = new CountDownLatch(1);
+        CachingOrdersQueries cache = new CachingOrdersQueries(ordersQueries, 100, 1_000);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Customer>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cache.getCustomersRankedByExpense(0, 3)));
+            }
+            assertTrue(ordersQueries.started.await(10, TimeUnit.SECONDS));
+            // pozostałe wątki zdążą trafić na wpis w trakcie obliczania
+            Thread.sleep(200);
+            ordersQueries.release.countDown();
+            List<Customer> first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<List<Customer>> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, ordersQueries.computations.get());
+        assertEquals(threads - 1, cache.getStats().hits());
+    }
+
+    @Test
+    void failedComputationIsNotCached() {
+        CountingQueries ordersQueries = new CountingQueries();
+        ordersQueries.failures = 1;
+        CachingOrdersQueries cache = new CachingOrdersQueries(ordersQueries, 100, 1_000);
+        assertThrows(IllegalStateException.class, () -> cache.getCustomersRankedByExpense(0, 3));
+        assertEquals(3, cache.getCustomersRankedByExpense(0, 3).size());
+        assertEquals(2, ordersQueries.computations.get());
+        assertEquals(1, cache.getStats().entries());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        CountingQueries ordersQueries = new CountingQueries();
+        // każdy ranking waży 1 + 3 elementy
+        CachingOrdersQueries cache = new CachingOrdersQueries(ordersQueries, 2, 1_000);
+        cache.getCustomersRankedByExpense(0, 3);
+        cache.getCustomersRankedByExpense(1, 3);
+        cache.getCustomersRankedByExpense(0, 3);
+        cache.getCustomersRankedByExpense(2, 3);
+        assertEquals(2, cache.getStats().entries());
+        assertEquals(1, cache.getStats().evictions());
+        cache.getCustomersRankedByExpense(0, 3);
+        assertEquals(3, ordersQueries.computations.get());
+
+        CachingOrdersQueries lightCache = new CachingOrdersQueries(ordersQueries, 100, 8);
+        lightCache.getCustomersRankedByExpense(0, 3);
+        lightCache.getCustomersRankedByExpense(1, 3);
+        lightCache.getCustomersRankedByExpense(2, 3);
+        assertEquals(2, lightCache.getStats().entries());
+        assertEquals(8, lightCache.getStats().weight());
+    }
+
+    @Test
+    void cachedResultsAreUnmodifiable() {
+        CachingOrdersQueries cache = new CachingOrdersQueries(new CountingQueries(), 100, 1_000);
+        assertThrows(UnsupportedOperationException.class, () -> cache.getCustomersRankedByExpense(0, 3).clear());
+    }
+
+    /*
+        Nad prawdziwym serwisem: po append wersja danych się zmienia i cache
+        odpowiada tak samo jak serwis bez cache.
+     */
+    @Test
+    void followsAppendsToOrdersService() throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 1L, 2, 1_000));
+        CachingOrdersQueries cache = new CachingOrdersQueries(ordersService, 1_000, 1_000_000);
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            assertSameResults(ordersService, cache);
+            assertSameResults(ordersService, cache);
+            ordersService.append(writeFiles(directory, "appended", 2L, 1, 500));
+            assertSameResults(ordersService, cache);
+        });
+        assertEquals(1, cache.getStats().invalidations());
+        assertTrue(cache.getStats().hits() > 0);
+    }
+
+    /*
+        Zlicza obliczenia rankingu; pozostałe zapytania nie są tu potrzebne.
+     */
+    private static final class CountingQueries implements OrdersQueries {
+
+        private final AtomicInteger computations = new AtomicInteger();
+        private volatile long dataVersion;
+        private volatile int failures;
+        private CountDownLatch started;
+        private CountDownLatch release;
+
+        @Override
+        public List<Customer> getCustomersRankedByExpense(int offset, int limit) {
+            computations.incrementAndGet();
+            if (started != null) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Query failed");
+            }
+            List<Customer> customers = new ArrayList<>();
+            for (int i = offset; i < offset + limit; i++) {
+                customers.add(Customer.builder().name("KLIENT").surname("%d".formatted(i)).age(20).cash(BigDecimal.TEN).build());
+            }
+            return customers;
+        }
+
+        @Override
+        public long getDataVersion() {
+            return dataVersion;
+        }
+
+        @Override
+        public List<Customer> getCustomersWithMaxExpense() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Customer getCustomerWithMaxExpenseOnCategory(Category category) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Integer, List<Category>> findMostPopularCategoryForAge() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Integer, Category> getAgesWithPopularCategories() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Category, BigDecimal> getCategoriesWithAveragePrices() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Category, Product> getCategoriesAndProductsWithMaxPrice() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Category, Product> getCategoriesAndProductsWithMinPrice() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Category, Customer> getCategoriesAndCustomers() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Customer, BigDecimal> getCustomersAndDebts() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Customer> getTopCustomersByExpenseOnCategory(Category category, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Customer> getTopCustomersByExpenseForAge(int minAge, int maxAge, int limit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.app.service.offheap;
+
+import com.app.persistence.validator.ValidationStage;
+import com.app.service.OrdersService;
+import com.app.service.exception.OrdersServiceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.app.service.OrdersTestData.assertSameResults;
+import static com.app.service.OrdersTestData.writeFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapOrdersServiceTest {
+
+    private static final int PRICE_SCALE = 2;
+
+    @TempDir
+    Path directory;
+
+    /*
+        Partycje skanu równoległego są nie mniejsze niż 65536 wierszy, więc dane
+        muszą mieć ich kilkaset tysięcy, żeby pula faktycznie dzieliła pracę.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void answersLikeOrdersService(boolean mapped) throws IOException {
+        List<String> files = writeFiles(directory, "customers", 1L, 4, 40_000);
+        List<String> appended = writeFiles(directory, "appended", 2L, 1, 5_000);
+        OrdersService ordersService = new OrdersService(files);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (OffHeapOrdersService offHeap = new OffHeapOrdersService(store(mapped), PRICE_SCALE);
+             OffHeapOrdersService parallelOffHeap = new OffHeapOrdersService(store(mapped), PRICE_SCALE, pool)) {
+            offHeap.append(files);
+            parallelOffHeap.append(files);
+            assertSameResults(ordersService, offHeap);
+            assertSameResults(ordersService, parallelOffHeap);
+            ordersService.append(appended);
+            offHeap.append(appended);
+            assertSameResults(ordersService, offHeap);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void loadsSnapshotLikeOrdersService() throws IOException {
+        OrdersService ordersService = new OrdersService(writeFiles(directory, "customers", 3L, 2, 5_000));
+        String snapshot = directory.resolve("orders.snapshot").toString();
+        ordersService.saveSnapshot(snapshot);
+        try (OffHeapOrdersService offHeap = new OffHeapOrdersService(OffHeapOrderStore.offHeap(), PRICE_SCALE)) {
+            offHeap.appendSnapshot(snapshot);
+            assertSameResults(ordersService, offHeap);
+        }
+    }
+
+    /*
+        Błąd w drugim pliku partii nie zostawia pozycji z pierwszego i nie zmienia wersji.
+     */
+    @Test
+    void failedAppendLeavesDataUnchanged() throws IOException {
+        List<String> files = writeFiles(directory, "customers", 4L, 1, 2_000);
+        List<String> appended = writeFiles(directory, "appended", 5L, 1, 2_000);
+        Path invalid = Files.writeString(directory.resolve("invalid.json"), """
+                [{"customer":{"name":"JAN","surname":"KOS","age":18,"cash":100},"products":[{"name":"P","category":"KSIAZKA","price":0.001}]}]""");
+        OrdersService ordersService = new OrdersService(files);
+        try (OffHeapOrdersService offHeap = new OffHeapOrdersService(OffHeapOrderStore.offHeap(), PRICE_SCALE)) {
+            offHeap.append(files);
+            long size = offHeap.size();
+            long dataVersion = offHeap.getDataVersion();
+            assertThrows(OrdersServiceException.class, () -> offHeap.append(List.of(appended.get(0), invalid.toString())));
+            assertEquals(size, offHeap.size());
+            assertEquals(dataVersion, offHeap.getDataVersion());
+            assertSameResults(ordersService, offHeap);
+        }
+    }
+
+    /*
+        Wspólny etap kwarantanny działa przy każdym kolejnym dopisaniu.
+     */
+    @Test
+    void quarantinesRecordsOfEveryAppend() throws IOException {
+        Path quarantine = directory.resolve("quarantine.ndjson");
+        Path invalid = Files.writeString(directory.resolve("invalid.json"), """
+                [{"customer":{"name":"JAN","surname":"KOS","age":10,"cash":100},"products":[{"name":"P","category":"KSIAZKA","price":1}]},
+                 {"customer":{"name":"EWA","surname":"NOWAK","age":30,"cash":100},"products":[{"name":"P","category":"KSIAZKA","price":1}]}]""");
+        try (OffHeapOrdersService offHeap = new OffHeapOrdersService(OffHeapOrderStore.offHeap(), PRICE_SCALE, null,
+                ValidationStage.quarantine(quarantine))) {
+            offHeap.append(List.of(invalid.toString()));
+            assertEquals(1, Files.readAllLines(quarantine).size());
+            offHeap.append(List.of(invalid.toString()));
+            assertEquals(2, Files.readAllLines(quarantine).size());
+            assertEquals(2, offHeap.size());
+        }
+    }
+
+    private OffHeapOrderStore store(boolean mapped) throws IOException {
+        return mapped ? OffHeapOrderStore.mapped(Files.createTempDirectory(directory, "store")) : OffHeapOrderStore.offHeap();
+    }
+
+}